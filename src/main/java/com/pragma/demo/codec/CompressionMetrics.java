@@ -0,0 +1,48 @@
+package com.pragma.demo.codec;
+
+import java.util.concurrent.atomic.LongAdder;
+import com.pragma.demo.models.CompressionReport;
+
+/**
+ * Compression counters of all compressed streams, see StreamCompressor. Compression runs on the
+ * thread writing the stream, so compression time is CPU time. Thread safe.
+ */
+public class CompressionMetrics {
+
+    private final LongAdder gzipStreams = new LongAdder();
+    private final LongAdder deflateStreams = new LongAdder();
+    private final LongAdder activeStreams = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+
+    void streamOpened(StreamCompressor.Encoding encoding) {
+        (encoding == StreamCompressor.Encoding.GZIP ? gzipStreams : deflateStreams).increment();
+        activeStreams.increment();
+    }
+
+    void streamClosed() {
+        activeStreams.decrement();
+    }
+
+    void record(int raw, int compressed, long nanos) {
+        if (raw > 0)
+            messages.increment();
+        rawBytes.add(raw);
+        compressedBytes.add(compressed);
+        compressNanos.add(nanos);
+    }
+
+    /**
+     * @return Counters since startup.
+     */
+    public CompressionReport report() {
+        long raw = rawBytes.sum();
+        long compressed = compressedBytes.sum();
+        long nanos = compressNanos.sum();
+        return new CompressionReport(gzipStreams.sum(), deflateStreams.sum(), activeStreams.sum(),
+                messages.sum(), raw, compressed, compressed == 0 ? 0 : (double) raw / compressed,
+                nanos / 1_000_000, raw == 0 ? 0 : nanos * 1024.0 / raw);
+    }
+}
@@ -0,0 +1,144 @@
+package com.pragma.demo.codec;
+
+import static com.pragma.demo.codec.MarketDataBinaryFormat.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Decodes a {@link MarketDataBinaryFormat} stream back into market data events. Chunks may be fed
+ * as they arrive from the network - frames split across chunks are held back until the rest of the
+ * frame arrives. One decoder must be used per stream. Not thread safe.
+ *
+ * Blank venues are decoded as empty strings.
+ */
+public class MarketDataBinaryDecoder {
+
+    private int prevId;
+    private long prevTimestamp;
+    private String prevSymbol;
+
+    // bytes of an incomplete trailing frame from the previous chunk
+    private byte[] pending = new byte[0];
+
+    /**
+     * Decode all complete frames in chunk.
+     *
+     * @param chunk Next chunk of the stream.
+     * @return Decoded events, possibly empty.
+     */
+    public List<MarketDataEvent> decode(byte[] chunk) {
+        return decode(ByteBuffer.wrap(chunk));
+    }
+
+    /**
+     * Decode all complete frames in chunk. Chunk is fully consumed.
+     *
+     * @param chunk Next chunk of the stream.
+     * @return Decoded events, possibly empty.
+     */
+    public List<MarketDataEvent> decode(ByteBuffer chunk) {
+        ByteBuffer in = chunk;
+        if (pending.length > 0) {
+            byte[] joined = Arrays.copyOf(pending, pending.length + chunk.remaining());
+            chunk.get(joined, pending.length, chunk.remaining());
+            in = ByteBuffer.wrap(joined);
+        }
+
+        List<MarketDataEvent> events = new ArrayList<>();
+        while (in.hasRemaining()) {
+            int frameStart = in.position();
+            try {
+                int length = (int) readUnsigned(in);
+                if (in.remaining() < length) {
+                    in.position(frameStart);
+                    break;
+                }
+                int bodyEnd = in.position() + length;
+                events.add(readBody(in));
+                in.position(bodyEnd);
+            }
+            catch (BufferUnderflowException e) {
+                in.position(frameStart); // length prefix itself is split across chunks
+                break;
+            }
+        }
+
+        pending = new byte[in.remaining()];
+        in.get(pending);
+        return events;
+    }
+
+    /**
+     * @return True if the decoder holds bytes of an incomplete frame.
+     */
+    public boolean hasPartialFrame() {
+        return pending.length > 0;
+    }
+
+    private MarketDataEvent readBody(ByteBuffer in) {
+        int header = in.get() & 0xFF;
+        int type = header & TYPE_MASK;
+        String event = type == TYPE_LITERAL ? readString(in) : TYPE_NAMES[type];
+        if ((header & FLAG_SYMBOL) != 0) {
+            String symbol = readString(in);
+            prevSymbol = symbol.isEmpty() ? null : symbol;
+        }
+
+        int id = (int) (prevId + readSigned(in));
+        long timestamp = prevTimestamp + readSigned(in);
+        prevId = id;
+        prevTimestamp = timestamp;
+
+        double price1 = fromTicks(readSigned(in));
+        int shares1 = (int) readSigned(in);
+        String xchg1 = readVenue(in);
+
+        double price2 = 0.0;
+        int shares2 = 0;
+        String xchg2 = "";
+        if ((header & FLAG_SECOND_LEG) != 0) {
+            price2 = fromTicks(readSigned(in));
+            shares2 = (int) readSigned(in);
+            xchg2 = readVenue(in);
+        }
+        return new MarketDataEvent(id, timestamp, event, price1, shares1, xchg1, price2, shares2,
+                xchg2, (header & FLAG_SNAPSHOT) != 0, prevSymbol);
+    }
+
+    private static String readVenue(ByteBuffer in) {
+        int venue = in.get() & 0xFF;
+        if (venue == VENUE_BLANK)
+            return "";
+        if (venue == VENUE_LITERAL)
+            return readString(in);
+        return String.valueOf((char) venue);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readUnsigned(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readSigned(ByteBuffer in) {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1); // zig-zag
+    }
+
+    private static long readUnsigned(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
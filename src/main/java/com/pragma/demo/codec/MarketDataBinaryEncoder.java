@@ -0,0 +1,145 @@
+package com.pragma.demo.codec;
+
+import static com.pragma.demo.codec.MarketDataBinaryFormat.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Encodes market data events into the {@link MarketDataBinaryFormat} wire format. Encoder keeps
+ * delta state between calls, so one encoder must be used per stream (subscriber). Not thread safe.
+ */
+public class MarketDataBinaryEncoder {
+
+    private int prevId;
+    private long prevTimestamp;
+    private String prevSymbol;
+
+    // scratch buffers, reused between events to keep encode cost low
+    private byte[] body = new byte[64];
+    private int bodyLength;
+    private byte[] frame = new byte[72];
+    private int frameLength;
+
+    /**
+     * Encode event as a single length-prefixed frame.
+     *
+     * @param event Market data event.
+     * @return Encoded frame.
+     */
+    public byte[] encode(MarketDataEvent event) {
+        frameLength = 0;
+        appendFrame(event);
+        return Arrays.copyOf(frame, frameLength);
+    }
+
+    /**
+     * Encode events as consecutive length-prefixed frames in a single array.
+     *
+     * @param events Market data events.
+     * @return Encoded frames.
+     */
+    public byte[] encode(Iterable<MarketDataEvent> events) {
+        frameLength = 0;
+        for (MarketDataEvent event : events) {
+            appendFrame(event);
+        }
+        return Arrays.copyOf(frame, frameLength);
+    }
+
+    private void appendFrame(MarketDataEvent event) {
+        bodyLength = 0;
+        writeBody(event);
+
+        ensureFrameCapacity(bodyLength + 5);
+        long length = bodyLength;
+        while ((length & ~0x7FL) != 0) {
+            frame[frameLength++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        frame[frameLength++] = (byte) length;
+        System.arraycopy(body, 0, frame, frameLength, bodyLength);
+        frameLength += bodyLength;
+    }
+
+    private void writeBody(MarketDataEvent event) {
+        int type = typeCode(event.event());
+        boolean secondLeg = event.price2() != 0.0 || event.shares2() != 0
+                || (event.xchg2() != null && !event.xchg2().isEmpty());
+
+        boolean symbolChanged = !Objects.equals(event.symbol(), prevSymbol);
+
+        writeByte(type | (secondLeg ? FLAG_SECOND_LEG : 0)
+                | (event.snapshot() ? FLAG_SNAPSHOT : 0) | (symbolChanged ? FLAG_SYMBOL : 0));
+        if (type == TYPE_LITERAL)
+            writeString(event.event() == null ? "" : event.event());
+        if (symbolChanged) {
+            writeString(event.symbol() == null ? "" : event.symbol());
+            prevSymbol = event.symbol();
+        }
+
+        writeSigned((long) event.id() - prevId);
+        writeSigned(event.timestamp() - prevTimestamp);
+        prevId = event.id();
+        prevTimestamp = event.timestamp();
+
+        writeSigned(toTicks(event.price1()));
+        writeSigned(event.shares1());
+        writeVenue(event.xchg1());
+        if (secondLeg) {
+            writeSigned(toTicks(event.price2()));
+            writeSigned(event.shares2());
+            writeVenue(event.xchg2());
+        }
+    }
+
+    private void writeVenue(String venue) {
+        if (venue == null || venue.isEmpty()) {
+            writeByte(VENUE_BLANK);
+        }
+        else if (venue.length() == 1 && venue.charAt(0) > 0 && venue.charAt(0) < 0x80) {
+            writeByte(venue.charAt(0));
+        }
+        else {
+            writeByte(VENUE_LITERAL);
+            writeString(venue);
+        }
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(bytes.length);
+        ensureBodyCapacity(bytes.length);
+        System.arraycopy(bytes, 0, body, bodyLength, bytes.length);
+        bodyLength += bytes.length;
+    }
+
+    private void writeSigned(long value) {
+        writeUnsigned((value << 1) ^ (value >> 63)); // zig-zag
+    }
+
+    private void writeUnsigned(long value) {
+        ensureBodyCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            body[bodyLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        body[bodyLength++] = (byte) value;
+    }
+
+    private void writeByte(int value) {
+        ensureBodyCapacity(1);
+        body[bodyLength++] = (byte) value;
+    }
+
+    private void ensureBodyCapacity(int extra) {
+        if (bodyLength + extra > body.length)
+            body = Arrays.copyOf(body, Math.max(body.length * 2, bodyLength + extra));
+    }
+
+    private void ensureFrameCapacity(int extra) {
+        if (frameLength + extra > frame.length)
+            frame = Arrays.copyOf(frame, Math.max(frame.length * 2, frameLength + extra));
+    }
+}
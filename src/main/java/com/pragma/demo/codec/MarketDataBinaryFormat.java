@@ -0,0 +1,69 @@
+package com.pragma.demo.codec;
+
+/**
+ * Compact binary wire format for market data event streams.
+ *
+ * Every event is written as a length-prefixed frame: an unsigned varint with the body length,
+ * followed by the body. Body layout:
+ *
+ * <pre>
+ * header   1 byte   low nibble: event type code, bit 4: second leg present, bit 5: snapshot,
+ *                   bit 6: symbol changed
+ * [type]   varint length + UTF-8 bytes, only when type code is TYPE_LITERAL
+ * [symbol] varint length + UTF-8 bytes, only when symbol changed (empty for no symbol)
+ * id       zig-zag varint, delta against previous event id in the stream
+ * time     zig-zag varint, delta against previous event timestamp in the stream
+ * price1   zig-zag varint, price in ticks (price * PRICE_SCALE)
+ * shares1  zig-zag varint
+ * xchg1    venue (see below)
+ * price2   zig-zag varint ticks   } only when second leg is present
+ * shares2  zig-zag varint         }
+ * xchg2    venue                  }
+ * </pre>
+ *
+ * A venue is a single byte: 0 for blank, the ASCII character for single character venue codes, or
+ * VENUE_LITERAL followed by varint length + UTF-8 bytes for anything else.
+ *
+ * Symbol is sent only when it differs from the previous event's symbol, so single symbol streams
+ * carry it once. Delta state (including symbol) starts at zero/none for every stream, so encoder
+ * and decoder must see the same frames in the same order.
+ */
+public final class MarketDataBinaryFormat {
+
+    /** Prices are sent as integer ticks of 1/PRICE_SCALE. */
+    public static final long PRICE_SCALE = 10_000L;
+
+    static final int TYPE_LITERAL = 0;
+    static final int TYPE_BID = 1;
+    static final int TYPE_ASK = 2;
+    static final int TYPE_NBBO = 3;
+    static final int TYPE_TRADE = 4;
+
+    static final int TYPE_MASK = 0x0F;
+    static final int FLAG_SECOND_LEG = 0x10;
+    static final int FLAG_SNAPSHOT = 0x20;
+    static final int FLAG_SYMBOL = 0x40;
+
+    static final int VENUE_BLANK = 0;
+    static final int VENUE_LITERAL = 0xFF;
+
+    static final String[] TYPE_NAMES = {null, "Bid", "Ask", "NBBO", "Trade"};
+
+    private MarketDataBinaryFormat() {}
+
+    static int typeCode(String event) {
+        for (int code = 1; code < TYPE_NAMES.length; code++) {
+            if (TYPE_NAMES[code].equals(event))
+                return code;
+        }
+        return TYPE_LITERAL;
+    }
+
+    static long toTicks(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    static double fromTicks(long ticks) {
+        return ticks / (double) PRICE_SCALE;
+    }
+}
@@ -0,0 +1,184 @@
+package com.pragma.demo.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a stream of messages (e.g. SSE events) into a single gzip or deflate stream. The
+ * deflate context is kept for the whole stream, so field names, venue codes and event types
+ * repeated across messages compress well even when every message is flushed on its own. Each
+ * message is flushed with SYNC_FLUSH, so the client can decompress everything received so far -
+ * compression adds no latency.
+ *
+ * One compressor per stream (subscriber), messages are compressed in stream order. Release with
+ * end(), e.g. when the subscriber cancels - the deflater holds native memory.
+ */
+public class StreamCompressor {
+
+    /**
+     * Content encodings, in order of preference.
+     */
+    public enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        /**
+         * @return Content-Encoding token.
+         */
+        public String token() {
+            return token;
+        }
+
+        /**
+         * Negotiate encoding from an Accept-Encoding header. Encodings with q=0 are refused.
+         *
+         * @param acceptEncoding Accept-Encoding header, may be null.
+         * @return Preferred encoding accepted by the client, null if none.
+         */
+        public static Encoding negotiate(String acceptEncoding) {
+            if (acceptEncoding == null)
+                return null;
+            Encoding best = null;
+            for (String part : acceptEncoding.split(",")) {
+                String[] params = part.trim().split(";");
+                String token = params[0].trim().toLowerCase(Locale.ROOT);
+                boolean refused = false;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim().replace(" ", "");
+                    if (param.matches("q=0(\\.0*)?"))
+                        refused = true;
+                }
+                for (Encoding encoding : values()) {
+                    if (!refused && encoding.token.equals(token)
+                            && (best == null || encoding.ordinal() < best.ordinal()))
+                        best = encoding;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0,
+            0, 0, (byte) 0xff};
+
+    private final Encoding encoding;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final CompressionMetrics metrics;
+
+    private boolean started;
+    private boolean ended;
+
+    // scratch output buffer, reused between messages
+    private byte[] out = new byte[8192];
+    private int outLength;
+
+    public StreamCompressor(Encoding encoding, int level, CompressionMetrics metrics) {
+        this.encoding = encoding;
+        this.deflater = new Deflater(level, encoding == Encoding.GZIP); // gzip wraps raw deflate
+        this.metrics = metrics;
+        metrics.streamOpened(encoding);
+    }
+
+    /**
+     * Compress and flush a message.
+     *
+     * @param input Message bytes, consumed.
+     * @return Compressed bytes - everything needed to decompress the stream up to and including
+     *         this message.
+     */
+    public synchronized byte[] compress(ByteBuffer input) {
+        long startNanos = System.nanoTime();
+        int rawBytes = input.remaining();
+        outLength = 0;
+        if (!started) {
+            started = true;
+            if (encoding == Encoding.GZIP)
+                append(GZIP_HEADER);
+        }
+        if (encoding == Encoding.GZIP)
+            crc.update(input.duplicate());
+
+        deflater.setInput(input);
+        int space;
+        int written;
+        do { // output that fills the space may be incomplete, flush again with more space
+            ensureCapacity(outLength + 1024);
+            space = out.length - outLength;
+            written = deflater.deflate(out, outLength, space, Deflater.SYNC_FLUSH);
+            outLength += written;
+        } while (written == space);
+
+        byte[] compressed = Arrays.copyOf(out, outLength);
+        metrics.record(rawBytes, compressed.length, System.nanoTime() - startNanos);
+        return compressed;
+    }
+
+    /**
+     * Finish the stream - no messages may follow.
+     *
+     * @return Trailing compressed bytes.
+     */
+    public synchronized byte[] finish() {
+        long startNanos = System.nanoTime();
+        outLength = 0;
+        if (!started) {
+            started = true;
+            if (encoding == Encoding.GZIP)
+                append(GZIP_HEADER);
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            ensureCapacity(outLength + 1024);
+            outLength += deflater.deflate(out, outLength, out.length - outLength);
+        }
+        if (encoding == Encoding.GZIP) {
+            appendIntLE((int) crc.getValue());
+            appendIntLE((int) deflater.getBytesRead()); // input size mod 2^32
+        }
+
+        byte[] compressed = Arrays.copyOf(out, outLength);
+        metrics.record(0, compressed.length, System.nanoTime() - startNanos);
+        return compressed;
+    }
+
+    /**
+     * Release the deflater. No-op if already ended.
+     */
+    public synchronized void end() {
+        if (ended)
+            return;
+        ended = true;
+        deflater.end();
+        metrics.streamClosed();
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(outLength + bytes.length);
+        System.arraycopy(bytes, 0, out, outLength, bytes.length);
+        outLength += bytes.length;
+    }
+
+    private void appendIntLE(int value) {
+        ensureCapacity(outLength + 4);
+        for (int i = 0; i < 4; i++)
+            out[outLength++] = (byte) (value >>> (8 * i));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > out.length)
+            out = Arrays.copyOf(out, Math.max(capacity, out.length * 2));
+    }
+}
@@ -0,0 +1,122 @@
+package com.pragma.demo.config;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.WebFilter;
+import com.pragma.demo.codec.CompressionMetrics;
+import com.pragma.demo.codec.StreamCompressor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opt-in compression of SSE event streams. When enabled, clients that send Accept-Encoding gzip or
+ * deflate get the event stream compressed as a single stream (see StreamCompressor) - every event
+ * is flushed where the SSE writer flushes it, so events are not held back. Other responses are not
+ * affected.
+ *
+ * The setting is read per request rather than through a condition, so it also applies to AOT
+ * builds (see the faststart profile).
+ */
+@Slf4j
+@Configuration
+public class CompressionConfig {
+
+    @Value("${app.market.replay.compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.market.replay.compression.level:6}")
+    private int level;
+
+    @Bean
+    public CompressionMetrics compressionMetrics() {
+        return new CompressionMetrics();
+    }
+
+    @Bean
+    public WebFilter eventStreamCompressionFilter(CompressionMetrics metrics) {
+        log.info("Event stream compression enabled: {}, level: {}", enabled, level);
+        return (exchange, chain) -> {
+            if (!enabled)
+                return chain.filter(exchange);
+            StreamCompressor.Encoding encoding = StreamCompressor.Encoding.negotiate(
+                    exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+            if (encoding == null)
+                return chain.filter(exchange);
+            return chain.filter(exchange.mutate()
+                    .response(new CompressedEventStreamResponse(exchange.getResponse(), encoding,
+                            level, metrics))
+                    .build());
+        };
+    }
+
+    // Compresses text/event-stream bodies, one SYNC_FLUSH per flushed group (event)
+    private static class CompressedEventStreamResponse extends ServerHttpResponseDecorator {
+
+        private final StreamCompressor.Encoding encoding;
+        private final int level;
+        private final CompressionMetrics metrics;
+
+        CompressedEventStreamResponse(ServerHttpResponse delegate,
+                StreamCompressor.Encoding encoding, int level, CompressionMetrics metrics) {
+            super(delegate);
+            this.encoding = encoding;
+            this.level = level;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(
+                Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (!MediaType.TEXT_EVENT_STREAM.isCompatibleWith(getHeaders().getContentType()))
+                return super.writeAndFlushWith(body);
+
+            getHeaders().set(HttpHeaders.CONTENT_ENCODING, encoding.token());
+            getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            // Groups are compressed in order as they arrive, each compressed group is flushed
+            return super.writeAndFlushWith(Flux.using(
+                    () -> new StreamCompressor(encoding, level, metrics),
+                    compressor -> Flux.concat(
+                            Flux.from(body).concatMap(group -> compress(compressor, group)),
+                            Mono.fromCallable(() -> wrap(compressor.finish()))),
+                    StreamCompressor::end).map(Mono::just));
+        }
+
+        private Mono<DataBuffer> compress(StreamCompressor compressor,
+                Publisher<? extends DataBuffer> group) {
+            return DataBufferUtils.join(group).map(buffer -> {
+                try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                    byte[] compressed = new byte[0];
+                    while (it.hasNext()) {
+                        byte[] chunk = compressor.compress(it.next());
+                        compressed = compressed.length == 0 ? chunk : concat(compressed, chunk);
+                    }
+                    return wrap(compressed);
+                }
+                finally {
+                    DataBufferUtils.release(buffer);
+                }
+            });
+        }
+
+        private DataBuffer wrap(byte[] bytes) {
+            return bufferFactory().wrap(bytes);
+        }
+
+        private static byte[] concat(byte[] first, byte[] second) {
+            byte[] bytes = new byte[first.length + second.length];
+            System.arraycopy(first, 0, bytes, 0, first.length);
+            System.arraycopy(second, 0, bytes, first.length, second.length);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.pragma.demo.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Fast-start profile (see application-faststart.properties and build.gradle -PfastStart). Spring
+ * AOT evaluates profiles at build time, so the AOT build is made for this profile.
+ */
+@Configuration
+@Profile("faststart")
+public class FastStartConfig {
+
+    /**
+     * Create springdoc (OpenAPI/Swagger UI) beans on first use instead of at startup. Static, so
+     * the post processor does not initialize this configuration early.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazySpringdoc() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (isSpringdoc(beanFactory, definition))
+                    definition.setLazyInit(true);
+            }
+        };
+    }
+
+    // Bean class, or for @Bean methods the declaring configuration class, is from springdoc
+    private static boolean isSpringdoc(ConfigurableListableBeanFactory beanFactory,
+            BeanDefinition definition) {
+        String className = definition.getBeanClassName();
+        String factoryBean = definition.getFactoryBeanName();
+        if (className == null && factoryBean != null
+                && beanFactory.containsBeanDefinition(factoryBean))
+            className = beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+        return className != null && className.startsWith("org.springdoc.");
+    }
+}
@@ -0,0 +1,30 @@
+package com.pragma.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.netty.server.WebsocketRouteTransport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * RSocket transports. The TCP server is started by Spring Boot (spring.rsocket.server.port). The
+ * WebSocket transport is mounted on the HTTP server so browser clients can reach the same
+ * responder without a second port.
+ */
+@Slf4j
+@Configuration
+public class RSocketConfig {
+
+    @Value("${app.market.replay.rsocket.websocket.path}")
+    private String path;
+
+    @Bean
+    public NettyRouteProvider rsocketWebSocketRoute(RSocketMessageHandler handler) {
+        log.info("RSocket WebSocket endpoint: {}", path);
+        return routes -> routes.ws(path, WebsocketRouteTransport
+                .newHandler(RSocketServer.create(handler.responder()).asConnectionAcceptor()));
+    }
+}
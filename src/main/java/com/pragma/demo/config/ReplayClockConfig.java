@@ -0,0 +1,19 @@
+package com.pragma.demo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.pragma.demo.services.clock.ReplayClock;
+import com.pragma.demo.services.clock.WallReplayClock;
+
+@Configuration
+public class ReplayClockConfig {
+
+    /**
+     * Real time clock for replay sessions. Tests and simulations pass a VirtualReplayClock to the
+     * sessions they create instead.
+     */
+    @Bean
+    public ReplayClock replayClock() {
+        return new WallReplayClock();
+    }
+}
@@ -27,6 +27,7 @@ public class ReplaySessionCacheConfig {
                 .removalListener((RemovalNotification<String, ReplaySession> notification) -> {
                     log.trace("Entry removed: {}, Reason: {}", notification.getKey(),
                             notification.getCause());
+                    notification.getValue().close(); // release session dataset
                 }).build();
     }
 }
@@ -0,0 +1,41 @@
+package com.pragma.demo.config;
+
+import java.lang.management.ManagementFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import com.pragma.demo.services.DatasetCatalog;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logs time to data ready - JVM uptime when the default dataset is available for replay. With
+ * app.startup.exitWhenReady the application then exits, which the fast-start build uses for the
+ * AppCDS training run (classes loaded up to that point are archived) and to measure startup.
+ */
+@Slf4j
+@Component
+public class StartupListener {
+
+    @Value("${app.startup.exitWhenReady:false}")
+    private boolean exitWhenReady;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private DatasetCatalog catalog;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        catalog.whenReady().thenRunAsync(() -> {
+            log.info("Time to data ready: {} millis",
+                    ManagementFactory.getRuntimeMXBean().getUptime());
+            if (exitWhenReady)
+                System.exit(SpringApplication.exit(context));
+        });
+    }
+}
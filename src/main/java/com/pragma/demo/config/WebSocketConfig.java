@@ -0,0 +1,42 @@
+package com.pragma.demo.config;
+
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.reactive.socket.server.support.HandshakeWebSocketService;
+import org.springframework.web.reactive.socket.server.upgrade.ReactorNettyRequestUpgradeStrategy;
+import com.pragma.demo.controllers.ReplayWebSocketHandler;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.http.server.WebsocketServerSpec;
+
+@Slf4j
+@Configuration
+public class WebSocketConfig implements WebFluxConfigurer {
+
+    @Value("${app.market.replay.websocket.path}")
+    private String path;
+
+    @Value("${app.market.replay.websocket.compress:false}")
+    private boolean compress;
+
+    @Bean
+    public HandlerMapping webSocketMapping(ReplayWebSocketHandler handler) {
+        log.info("WebSocket replay endpoint: {}", path);
+        // order before annotated controllers
+        return new SimpleUrlHandlerMapping(Map.of(path, handler), -1);
+    }
+
+    // permessage-deflate, used with clients that offer it in the handshake. The deflate context is
+    // kept across messages of a connection, each message is flushed on its own
+    @Override
+    public WebSocketService getWebSocketService() {
+        log.info("WebSocket permessage-deflate enabled: {}", compress);
+        return new HandshakeWebSocketService(new ReactorNettyRequestUpgradeStrategy(
+                () -> WebsocketServerSpec.builder().compress(compress)));
+    }
+}
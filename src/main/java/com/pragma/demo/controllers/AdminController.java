@@ -0,0 +1,97 @@
+package com.pragma.demo.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import com.pragma.demo.codec.CompressionMetrics;
+import com.pragma.demo.models.CompressionReport;
+import com.pragma.demo.models.SessionStats;
+import com.pragma.demo.services.DatasetCatalog;
+import com.pragma.demo.services.ReplayException;
+import com.pragma.demo.services.ReplayService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import java.util.List;
+import reactor.core.scheduler.Schedulers;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+@Tag(name = "Market Data Replay Admin",
+                description = "APIs for operating the replay server. Provides APIs to check readiness, reload datasets and monitor sessions.")
+public class AdminController {
+
+        @Autowired
+        private DatasetCatalog catalog;
+
+        @Autowired
+        private ReplayService marketDataService;
+
+        @Autowired
+        private CompressionMetrics compressionMetrics;
+
+        @GetMapping("/ready")
+        @Operation(summary = "Readiness.",
+                        description = "Check whether the default dataset is loaded and sessions can be created on it. The dataset is loaded after the HTTP port opens when app.market.replay.datasets.asyncLoad is set (fast-start profile).")
+        @ApiResponse(responseCode = "200", description = "Ready")
+        @ApiResponse(responseCode = "503", description = "Default dataset is loading")
+        public Mono<ResponseEntity<String>> ready() {
+                if (!catalog.isReady())
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                        .body("Loading default dataset"));
+                return Mono.just(ResponseEntity.ok("Ready, default dataset events "
+                                + catalog.defaultDataset().size()));
+        }
+
+        @PostMapping("/dataset/reload/{dataset}")
+        @Operation(summary = "Reload dataset.",
+                        description = "Re-read dataset files and publish the new version for new sessions. Running sessions keep replaying the version they started on, which is dropped when the last of them is removed. Use 'default' for the default dataset.")
+        @ApiResponse(responseCode = "200", description = "Successfully reloaded")
+        @ApiResponse(responseCode = "404", description = "Dataset not found or cannot be loaded")
+        public Mono<String> reload(@PathVariable @Parameter(name = "dataset",
+                        description = "Dataset name", required = true) String dataset) {
+                return Mono.fromCallable(() -> catalog.reload(dataset))
+                                .subscribeOn(Schedulers.boundedElastic()) // parse off the event loop
+                                .map(reloaded -> "Reloaded dataset " + reloaded.name()
+                                                + ", version " + reloaded.version() + ", events "
+                                                + reloaded.size())
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @GetMapping(value = "/sessions/stats", produces = "text/event-stream")
+        @Operation(summary = "Stream session statistics.",
+                        description = "Stream a periodic sample of all sessions: id, state, position and size, replay clock vs wall clock, configured speed, achieved events/sec since the previous sample, buffer depth (events emitted but not yet taken by the subscriber) and subscriber count. The first sample is sent on subscription.")
+        @ApiResponse(responseCode = "200", description = "Successfully subscribed")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Flux<ServerSentEvent<List<SessionStats>>> sessionStats(@RequestParam(
+                        defaultValue = "1000") @Parameter(name = "periodMillis",
+                                        description = "Sample period, millis") long periodMillis) {
+                return Mono.fromCallable(() -> marketDataService.stats(periodMillis))
+                                .flatMapMany(stats -> stats)
+                                .map(sample -> ServerSentEvent.builder(sample).event("stats")
+                                                .build())
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.BAD_REQUEST,
+                                                                e.getMessage(), e)));
+        }
+
+        @GetMapping("/compression")
+        @Operation(summary = "Event stream compression.",
+                        description = "Compression of SSE event streams since startup (app.market.replay.compression.enabled, negotiated per client by Accept-Encoding gzip or deflate): streams, bytes before and after compression, ratio and CPU time spent. Use to decide whether compression pays off for a deployment. WebSocket permessage-deflate (app.market.replay.websocket.compress) is done by the server and not included.")
+        @ApiResponse(responseCode = "200", description = "Successfully got compression report")
+        public Mono<CompressionReport> compression() {
+                return Mono.fromCallable(compressionMetrics::report);
+        }
+}
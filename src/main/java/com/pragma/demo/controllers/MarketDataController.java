@@ -2,20 +2,42 @@ package com.pragma.demo.controllers;
 
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.pragma.demo.codec.MarketDataBinaryEncoder;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.models.DatasetUpload;
+import com.pragma.demo.models.LatencyReport;
+import com.pragma.demo.models.LoopStatus;
 import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.models.ReplayEnvelope;
+import com.pragma.demo.services.Dataset;
+import com.pragma.demo.services.DatasetCatalog;
+import com.pragma.demo.services.DatasetNotReadyException;
+import com.pragma.demo.services.EventStore;
+import com.pragma.demo.services.ReplayCommand;
 import com.pragma.demo.services.ReplayException;
 import com.pragma.demo.services.ReplayService;
+import com.pragma.demo.services.data.CSVStreamParser;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Slf4j
 @RestController
@@ -24,15 +46,191 @@ import reactor.core.publisher.Mono;
                 description = "APIs for streaming pre-recorded market data. Provides APIs to create session, start, stop, rewind, jump, forward, and set replay speed.")
 public class MarketDataController {
 
+        private static final int RETRY_AFTER_SECONDS = 1; // while the default dataset loads
+
         @Autowired
         private ReplayService marketDataService;
 
+        @Autowired
+        private DatasetCatalog catalog;
+
         @PostMapping("/session")
         @Operation(summary = "Create replay session",
-                        description = "Create new replay session. Make sure to subscribe to session by calling stream.")
+                        description = "Create new replay session. Make sure to subscribe to session by calling stream. Optionally pass a dataset (e.g. a trading day) and a list of symbols to replay the per-symbol data files merged into a single time ordered stream. Datasets are loaded on first use.")
         @ApiResponse(responseCode = "200", description = "Successfully created session")
-        public Mono<String> createSession() {  
-                return Mono.just(marketDataService.createSession());
+        @ApiResponse(responseCode = "404", description = "Dataset or symbol not found")
+        @ApiResponse(responseCode = "503",
+                        description = "Default dataset is loading, retry after Retry-After seconds")
+        public Mono<String> createSession(@RequestParam(required = false) @Parameter(
+                        name = "dataset",
+                        description = "Dataset name, e.g. 2019-07-15. Omit to replay the default dataset.") String dataset,
+                        @RequestParam(required = false) @Parameter(name = "symbols",
+                                        description = "Comma separated symbols, e.g. AAPL,MSFT. Omit to replay the dataset data file.") List<String> symbols) {
+                return Mono.fromCallable(() -> marketDataService.createSession(dataset, symbols))
+                                .subscribeOn(Schedulers.boundedElastic()) // dataset may be loaded
+                                .onErrorResume(DatasetNotReadyException.class,
+                                                e -> Mono.error(notReady(e)))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @PostMapping("/sessions")
+        @Operation(summary = "Create replay sessions in bulk",
+                        description = "Create count replay sessions on the same dataset and symbols in one call, e.g. for load tests. All sessions are created or none. Optionally add the sessions to a group that can be controlled as a whole.")
+        @ApiResponse(responseCode = "200", description = "Successfully created sessions")
+        @ApiResponse(responseCode = "404",
+                        description = "Dataset or symbol not found, or count out of range")
+        @ApiResponse(responseCode = "503",
+                        description = "Default dataset is loading, retry after Retry-After seconds")
+        public Mono<List<String>> createSessions(@RequestParam @Parameter(name = "count",
+                        description = "Number of sessions. Must be positive (> 0) and at most app.market.replay.bulk.maxSessions",
+                        required = true) @Positive int count,
+                        @RequestParam(required = false) @Parameter(name = "dataset",
+                                        description = "Dataset name. Omit to replay the default dataset.") String dataset,
+                        @RequestParam(required = false) @Parameter(name = "symbols",
+                                        description = "Comma separated symbols. Omit to replay the dataset data file.") List<String> symbols,
+                        @RequestParam(required = false) @Parameter(name = "group",
+                                        description = "Group name. Sessions are added to the group, which is created if needed.") String group) {
+                return Mono.fromCallable(() -> marketDataService.createSessions(count, dataset,
+                                symbols, group))
+                                .subscribeOn(Schedulers.boundedElastic()) // dataset may be loaded
+                                .onErrorResume(DatasetNotReadyException.class,
+                                                e -> Mono.error(notReady(e)))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @PutMapping("/sessions/{command}")
+        @Operation(summary = "Control replay sessions in bulk.",
+                        description = "Apply command (start, stop, rewind, jump, forward, speed, seek, gap or their single letter aliases) to a list of sessions. The batch is validated as a whole - nothing is applied if a session is not found or terminated or the argument is invalid. Pass at to apply the command to all sessions together at a wall-clock instant, e.g. a synchronized start. Sessions started by one batch share a clock origin and publish in step, starting from the same replay timestamp if they are at the same position. Batches do not interleave with each other, but are not isolated from single-session commands or from publishing, which may see a batch half applied.")
+        @ApiResponse(responseCode = "200",
+                        description = "Command applied (or scheduled), reply per session")
+        @ApiResponse(responseCode = "404",
+                        description = "Session not found, or invalid command or argument")
+        public Mono<List<ControlReply>> controlSessions(@PathVariable @Parameter(
+                        name = "command", description = "Command name or alias",
+                        required = true) String command,
+                        @RequestParam(required = false) @Parameter(name = "argument",
+                                        description = "Command argument, e.g. event id for jump, speed for speed") String argument,
+                        @RequestParam(required = false) @Parameter(name = "at",
+                                        description = "Wall-clock time (epoch millis) to apply command at. Omit to apply now.") Long at,
+                        @RequestBody @Parameter(description = "Session ids (UUID)",
+                                        required = true) List<String> sessionIds) {
+                return Mono.fromCallable(() -> {
+                        sessionIds.forEach(this::validateUUID);
+                        return control(sessionIds, command, argument, at);
+                }).onErrorResume(ReplayException.class,
+                                e -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                                e.getMessage(), e)));
+        }
+
+        @GetMapping("/group/{group}")
+        @Operation(summary = "List session group.",
+                        description = "List ids of the sessions in a group. Removed and expired sessions are dropped from their group.")
+        @ApiResponse(responseCode = "200", description = "Successfully listed group")
+        @ApiResponse(responseCode = "404", description = "Group not found")
+        public Mono<List<String>> group(@PathVariable @Parameter(name = "group",
+                        description = "Group name", required = true) String group) {
+                return Mono.fromCallable(() -> marketDataService.group(group))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @PutMapping("/group/{group}/{command}")
+        @Operation(summary = "Control session group.",
+                        description = "Apply command to all sessions in a group, see bulk session control. Pass at for a synchronized group start at a shared wall-clock instant.")
+        @ApiResponse(responseCode = "200",
+                        description = "Command applied (or scheduled), reply per session")
+        @ApiResponse(responseCode = "404",
+                        description = "Group not found, or invalid command or argument")
+        public Mono<List<ControlReply>> controlGroup(@PathVariable @Parameter(name = "group",
+                        description = "Group name", required = true) String group,
+                        @PathVariable @Parameter(name = "command",
+                                        description = "Command name or alias",
+                                        required = true) String command,
+                        @RequestParam(required = false) @Parameter(name = "argument",
+                                        description = "Command argument, e.g. event id for jump, speed for speed") String argument,
+                        @RequestParam(required = false) @Parameter(name = "at",
+                                        description = "Wall-clock time (epoch millis) to apply command at. Omit to apply now.") Long at) {
+                return Mono.fromCallable(() -> control(marketDataService.group(group), command,
+                                argument, at))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        private List<ControlReply> control(List<String> sessionIds, String command,
+                        String argument, Long at) {
+                ReplayCommand replayCommand = ReplayCommand.parse(command);
+                return at == null ? marketDataService.control(sessionIds, replayCommand, argument)
+                                : marketDataService.control(sessionIds, replayCommand, argument,
+                                                at);
+        }
+
+        @GetMapping("/symbols")
+        @Operation(summary = "List symbols",
+                        description = "List symbols of the default dataset available for multi-symbol replay sessions.")
+        @ApiResponse(responseCode = "200", description = "Successfully listed symbols")
+        public Mono<List<String>> symbols() {
+                return Mono.just(marketDataService.symbols());
+        }
+
+        @PostMapping("/dataset")
+        @Operation(summary = "Upload dataset",
+                        description = "Upload a market data CSV file (same format as the default data file) as a replayable dataset. The request body is streamed and parsed incrementally. Uploading to an existing dataset name replaces it for new sessions. Uploaded datasets stay in memory.")
+        @ApiResponse(responseCode = "200", description = "Successfully uploaded dataset")
+        @ApiResponse(responseCode = "400", description = "Bad dataset name or no valid rows")
+        public Mono<DatasetUpload> uploadDataset(@RequestParam @Parameter(name = "name",
+                        description = "Dataset name, e.g. 2019-07-15", required = true) String name,
+                        ServerHttpRequest request) {
+                return Mono.defer(() -> {
+                        long start = System.nanoTime();
+                        catalog.validateUpload(name); // before reading the body
+                        CSVStreamParser parser = new CSVStreamParser("upload " + name);
+                        // Parsed batches go straight into the dataset store, events are held once
+                        EventStore store = catalog.openStore();
+                        return request.getBody()
+                                        .publishOn(Schedulers.boundedElastic()) // parse off the event loop
+                                        .doOnNext(buffer -> {
+                                                try (DataBuffer.ByteBufferIterator it =
+                                                                buffer.readableByteBuffers()) {
+                                                        while (it.hasNext()) {
+                                                                ByteBuffer chunk = it.next();
+                                                                store.append(parser.feed(chunk));
+                                                        }
+                                                }
+                                                finally {
+                                                        DataBufferUtils.release(buffer); // bytes are not retained
+                                                }
+                                        })
+                                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                                        .then(Mono.fromCallable(() -> {
+                                                store.append(parser.finish());
+                                                store.close();
+                                                if (store.isEmpty()) {
+                                                        throw new ReplayException(String.format(
+                                                                        "no valid rows in upload: %s, skipped rows: %d",
+                                                                        name, parser.skippedRows()));
+                                                }
+                                                Dataset dataset = catalog.register(name, store);
+                                                long millis = (System.nanoTime() - start) / 1_000_000;
+                                                DatasetUpload upload = new DatasetUpload(name,
+                                                                dataset.version(), parser.rows(),
+                                                                parser.skippedRows(), millis,
+                                                                parser.rows() * 1000.0
+                                                                                / Math.max(millis, 1));
+                                                log.info("Uploaded dataset: {}", upload);
+                                                return upload;
+                                        }));
+                }).onErrorResume(ReplayException.class, e -> Mono.error(
+                                new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e)));
         }
 
         @PutMapping("/session/start/{sessionId}")
@@ -115,6 +313,50 @@ public class MarketDataController {
                                                                 e.getMessage(), e)));
         }
 
+        @PutMapping("/session/seek/{sessionId}/{epochMillis}")
+        @Operation(summary = "Seek replay session to market time.",
+                        description = "Position replay session on the first event at or after the specified market time (epoch millis). Running sessions will resume streaming from that event. Seeking past the last event stops the session (does not wrap around).")
+        @ApiResponse(responseCode = "200", description = "Successfully seeked session")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<String> seek(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @PathVariable @Parameter(name = "epochMillis",
+                                        description = "Market time in epoch millis. Must be positive (> 0)",
+                                        required = true) @Positive long epochMillis) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId); // Runs in a reactive-safe way
+                        return sessionId;
+                }).then(Mono.fromRunnable(() -> marketDataService.seek(sessionId, epochMillis))) // Runs
+                                                                                                // non-blocking
+                                .thenReturn("Seek to " + epochMillis + " for session " + sessionId)
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @PutMapping("/session/seek_relative/{sessionId}/{deltaMillis}")
+        @Operation(summary = "Seek replay session relative to its replay clock.",
+                        description = "Move replay clock by the specified number of milliseconds and position session on the first event at or after the new time. Negative values seek backwards.")
+        @ApiResponse(responseCode = "200", description = "Successfully seeked session")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<String> seekRelative(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @PathVariable @Parameter(name = "deltaMillis",
+                                        description = "Milliseconds to move replay clock by. Negative values seek backwards.",
+                                        required = true) long deltaMillis) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId); // Runs in a reactive-safe way
+                        return sessionId;
+                }).then(Mono.fromRunnable(() -> marketDataService.seekRelative(sessionId, deltaMillis))) // Runs
+                                                                                                        // non-blocking
+                                .thenReturn("Seek by " + deltaMillis + " ms for session " + sessionId)
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
         @PutMapping("/session/forward/{sessionId}/{skipCount}")
         @Operation(summary = "Forward replay session by number of events.",
                         description = "Jump forward by skipping specified number of events. If number of skip events is greater than remaining events, session will stop (does not wrap around).")
@@ -162,17 +404,87 @@ public class MarketDataController {
                                                                 e.getMessage(), e)));
         }
 
+        @PutMapping("/session/gap/{sessionId}/{maxGapMillis}")
+        @Operation(summary = "Set gap compression.",
+                        description = "Compress idle stretches between events longer than maxGapMillis (market time) to maxGapMillis. 0 jumps straight to the next event. Negative value disables gap compression (default).")
+        @ApiResponse(responseCode = "200", description = "Successfully set gap compression")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<String> gapCompression(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @PathVariable @Parameter(name = "maxGapMillis",
+                                        description = "Max gap in market millis. 0 jumps straight to next event, negative disables.",
+                                        required = true) long maxGapMillis) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId); // Runs in a reactive-safe way
+                        return sessionId;
+                }).then(Mono.fromRunnable(() -> marketDataService.gapCompression(sessionId, maxGapMillis))) // Runs
+                                                                                                            // non-blocking
+                                .thenReturn("Max gap set to " + maxGapMillis + " for session "
+                                                + sessionId)
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @PutMapping("/session/loop/{sessionId}")
+        @Operation(summary = "Set loop mode.",
+                        description = "Loop the session for soak tests - at the end of the data the session wraps to the first event and continues without a gap on the same subscription instead of terminating. Optionally shift event timestamps by the data span on every loop so time keeps increasing.")
+        @ApiResponse(responseCode = "200", description = "Successfully set loop mode")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<String> loop(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @RequestParam(defaultValue = "true") @Parameter(name = "enabled",
+                                        description = "True to loop, false to terminate at the end of the data") boolean enabled,
+                        @RequestParam(defaultValue = "false") @Parameter(name = "shiftTimestamps",
+                                        description = "True to shift event timestamps by the data span on every loop") boolean shiftTimestamps) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId); // Runs in a reactive-safe way
+                        return sessionId;
+                }).then(Mono.fromRunnable(() -> marketDataService.loop(sessionId, enabled,
+                                shiftTimestamps)))
+                                .thenReturn("Loop mode " + (enabled ? "on" : "off")
+                                                + " for session " + sessionId)
+                                .onErrorResume(ReplayException.class,
+                                                e -> Mono.error(new ResponseStatusException(
+                                                                HttpStatus.NOT_FOUND,
+                                                                e.getMessage(), e)));
+        }
+
+        @GetMapping("/session/loop/{sessionId}")
+        @Operation(summary = "Get loop status.",
+                        description = "Loop mode and cumulative loop and published event counters of the session, for tracking long running stability.")
+        @ApiResponse(responseCode = "200", description = "Successfully got loop status")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<LoopStatus> loopStatus(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId);
+                        return marketDataService.loopStatus(sessionId);
+                }).onErrorResume(ReplayException.class,
+                                e -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                                e.getMessage(), e)));
+        }
+
         @GetMapping(value = "/session/subscribe/{sessionId}", produces = "text/event-stream")
         @Operation(summary = "Subscribe to replay session events.",
-                        description = "Subscribe to replay session events. After subscription, replay session must be started to actually begin streaming.")
+                        description = "Subscribe to replay session events. After subscription, replay session must be started to actually begin streaming. Each event is sent with its event id as the SSE id. Reconnecting with a Last-Event-ID header resumes the session after that event. Event ids are only unique per symbol, so multi-symbol sessions send events without SSE id and reject Last-Event-ID - reconnect without it to continue from the current position.")
         @ApiResponse(responseCode = "200", description = "Successfully subscribed")
         @ApiResponse(responseCode = "400", description = "Bad request")
-        public Flux<MarketDataEvent> subscribe(@PathVariable @Parameter(name = "sessionId",
-                        description = "Session Id (UUID)", required = true) String sessionId) {            
+        public Flux<ServerSentEvent<MarketDataEvent>> subscribe(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @RequestHeader(value = "Last-Event-ID", required = false) @Parameter(
+                                        name = "Last-Event-ID",
+                                        description = "Id of the last event received before the connection dropped") Integer lastEventId) {            
                         return Mono.fromCallable(() -> {
                         validateUUID(sessionId); // This may throw exceptions
                         return sessionId;
-                }).thenMany(marketDataService.subscribe(sessionId)) // Continue if validation passes
+                }).thenMany(Flux.defer(() -> {
+                        boolean ids = marketDataService.session(sessionId).isResumable();
+                        return (lastEventId == null ? marketDataService.subscribe(sessionId)
+                                        : marketDataService.resume(sessionId, lastEventId))
+                                                        .map(event -> toServerSentEvent(event, ids));
+                })) // Continue if validation passes
                                 .onErrorResume(ResponseStatusException.class, e -> Flux.error(e))
                                 .onErrorResume(ReplayException.class,
                                                 e -> Flux.error(new ResponseStatusException(
@@ -182,15 +494,86 @@ public class MarketDataController {
 
         @GetMapping(value = "/session/subscribe_start/{sessionId}", produces = "text/event-stream")
         @Operation(summary = "Subscribe to replay session events and start session.",
-                        description = "Subscribe to replay session events and then start session.")
+                        description = "Subscribe to replay session events and then start session. Reconnecting with a Last-Event-ID header resumes the session after that event. Multi-symbol sessions send events without SSE id and reject Last-Event-ID, see subscribe.")
         @ApiResponse(responseCode = "200", description = "Successfully subscribed and started")
         @ApiResponse(responseCode = "400", description = "Bad request")
-        public Flux<MarketDataEvent> subscribeStart(@PathVariable @Parameter(name = "sessionId",
+        public Flux<ServerSentEvent<MarketDataEvent>> subscribeStart(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @RequestHeader(value = "Last-Event-ID", required = false) @Parameter(
+                                        name = "Last-Event-ID",
+                                        description = "Id of the last event received before the connection dropped") Integer lastEventId) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId);
+                        return sessionId;
+                }).thenMany(Flux.defer(() -> doSubscribeStart(sessionId, lastEventId)))
+                                .onErrorResume(ResponseStatusException.class, e -> Flux.error(e))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Flux.error(new ResponseStatusException(
+                                                                HttpStatus.BAD_REQUEST,
+                                                                e.getMessage(), e)));
+        }
+
+        @GetMapping(value = "/session/subscribe_envelope/{sessionId}", produces = "text/event-stream")
+        @Operation(summary = "Subscribe to replay session events in envelope mode.",
+                        description = "Subscribe to replay session events, each wrapped with server-side timing in epoch micros: scheduledMicros (when the event was due at the session speed), emitMicros (when the session emitted it) and sendMicros (when it was taken from the session buffer for sending). Compare with the receive time to attribute latency to publishing, buffering or the network. Reconnecting with a Last-Event-ID header resumes the session after that event. Multi-symbol sessions send events without SSE id and reject Last-Event-ID, see subscribe.")
+        @ApiResponse(responseCode = "200", description = "Successfully subscribed")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Flux<ServerSentEvent<ReplayEnvelope>> subscribeEnvelope(@PathVariable @Parameter(
+                        name = "sessionId", description = "Session Id (UUID)",
+                        required = true) String sessionId,
+                        @RequestHeader(value = "Last-Event-ID", required = false) @Parameter(
+                                        name = "Last-Event-ID",
+                                        description = "Id of the last event received before the connection dropped") Integer lastEventId) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId);
+                        return sessionId;
+                }).thenMany(Flux.defer(() -> {
+                        boolean ids = marketDataService.session(sessionId).isResumable();
+                        return marketDataService.subscribeEnvelopes(sessionId, lastEventId)
+                                        .map(envelope -> envelope.event().snapshot()
+                                                        ? ServerSentEvent.builder(envelope)
+                                                                        .event("snapshot").build()
+                                                        : ids ? ServerSentEvent.builder(envelope)
+                                                                        .id(String.valueOf(envelope.event().id()))
+                                                                        .build()
+                                                                        : ServerSentEvent.builder(envelope).build());
+                }))
+                                .onErrorResume(ResponseStatusException.class, e -> Flux.error(e))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Flux.error(new ResponseStatusException(
+                                                                HttpStatus.BAD_REQUEST,
+                                                                e.getMessage(), e)));
+        }
+
+        @GetMapping("/session/latency/{sessionId}")
+        @Operation(summary = "Get replay session latency.",
+                        description = "Latency distribution (micros) of the session since creation per stage: emit - from when an event was due to when the session emitted it (late ticks, slow publishing), send - from emit to when the event was taken from the session buffer (slow subscriber).")
+        @ApiResponse(responseCode = "200", description = "Successfully got latency")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Mono<List<LatencyReport>> latency(@PathVariable @Parameter(name = "sessionId",
                         description = "Session Id (UUID)", required = true) String sessionId) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId);
+                        return marketDataService.latency(sessionId);
+                }).onErrorResume(ReplayException.class,
+                                e -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND,
+                                                e.getMessage(), e)));
+        }
+
+        @GetMapping(value = "/session/subscribe/{sessionId}/{series}", produces = "text/event-stream")
+        @Operation(summary = "Subscribe to replay session analytics.",
+                        description = "Subscribe to a derived analytics series: bars-1s, bars-1m (OHLC bars of trades), vwap, spread (NBBO spread statistics). Series are computed once per dataset and published in step with the session replay clock, speed and repositioning.")
+        @ApiResponse(responseCode = "200", description = "Successfully subscribed")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Flux<AnalyticsPoint> subscribeAnalytics(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId,
+                        @PathVariable @Parameter(name = "series",
+                                        description = "Series name: bars-1s, bars-1m, vwap, spread",
+                                        required = true) String series) {
                 return Mono.fromCallable(() -> {
                         validateUUID(sessionId);
                         return sessionId;
-                }).thenMany(doSubscribeStart(sessionId))
+                }).thenMany(Flux.defer(() -> marketDataService.subscribeAnalytics(sessionId, series)))
                                 .onErrorResume(ResponseStatusException.class, e -> Flux.error(e))
                                 .onErrorResume(ReplayException.class,
                                                 e -> Flux.error(new ResponseStatusException(
@@ -198,10 +581,60 @@ public class MarketDataController {
                                                                 e.getMessage(), e)));
         }
 
-        private Flux<MarketDataEvent> doSubscribeStart(String sessionId) {
-                Flux<MarketDataEvent> flux = marketDataService.subscribe(sessionId);
+        @GetMapping(value = "/session/subscribe_binary/{sessionId}",
+                        produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+        @Operation(summary = "Subscribe to replay session events in compact binary format.",
+                        description = "Subscribe to replay session events encoded as length-prefixed binary frames (delta-encoded ids and timestamps, prices as integer ticks, single byte event type and venue). Use MarketDataBinaryDecoder to decode the stream. After subscription, replay session must be started to actually begin streaming.")
+        @ApiResponse(responseCode = "200", description = "Successfully subscribed")
+        @ApiResponse(responseCode = "400", description = "Bad request")
+        public Flux<byte[]> subscribeBinary(@PathVariable @Parameter(name = "sessionId",
+                        description = "Session Id (UUID)", required = true) String sessionId) {
+                return Mono.fromCallable(() -> {
+                        validateUUID(sessionId);
+                        return sessionId;
+                }).thenMany(Flux.defer(() -> {
+                        // encoder holds delta state, one per subscriber
+                        MarketDataBinaryEncoder encoder = new MarketDataBinaryEncoder();
+                        return marketDataService.subscribe(sessionId).map(encoder::encode);
+                }))
+                                .onErrorResume(ResponseStatusException.class, e -> Flux.error(e))
+                                .onErrorResume(ReplayException.class,
+                                                e -> Flux.error(new ResponseStatusException(
+                                                                HttpStatus.BAD_REQUEST,
+                                                                e.getMessage(), e)));
+        }
+
+        private Flux<ServerSentEvent<MarketDataEvent>> doSubscribeStart(String sessionId,
+                        Integer lastEventId) {
+                boolean ids = marketDataService.session(sessionId).isResumable();
+                Flux<MarketDataEvent> flux = lastEventId == null
+                                ? marketDataService.subscribe(sessionId)
+                                : marketDataService.resume(sessionId, lastEventId);
                 marketDataService.start(sessionId);
-                return flux;
+                return flux.map(event -> toServerSentEvent(event, ids));
+        }
+
+        // Ids only where Last-Event-ID can resume, i.e. event ids identify a stream position
+        private static ServerSentEvent<MarketDataEvent> toServerSentEvent(MarketDataEvent event,
+                        boolean withId) {
+                if (event.snapshot()) // no id, so Last-Event-ID keeps pointing at stream position
+                        return ServerSentEvent.builder(event).event("snapshot").build();
+                if (!withId)
+                        return ServerSentEvent.builder(event).build();
+                return ServerSentEvent.builder(event).id(String.valueOf(event.id())).build();
+        }
+
+        // Default dataset still loading (fast start) - a client should retry, not give up
+        private static ResponseStatusException notReady(DatasetNotReadyException e) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+                return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                e.getMessage(), e) {
+                        @Override
+                        public HttpHeaders getHeaders() {
+                                return headers;
+                        }
+                };
         }
 
         private void validateUUID(String sessionId) {
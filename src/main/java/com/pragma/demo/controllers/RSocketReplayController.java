@@ -0,0 +1,55 @@
+package com.pragma.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.models.ControlRequest;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.ReplayCommand;
+import com.pragma.demo.services.ReplayException;
+import com.pragma.demo.services.ReplayService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * RSocket replay endpoint, served over TCP and WebSocket (see RSocketConfig).
+ *
+ * Routes:
+ * <ul>
+ * <li>mktdata.session - request-response, creates session and returns session id.</li>
+ * <li>mktdata.subscribe.{sessionId} - request-stream of session events. Remote request(n) demand
+ * paces the replay, see ReplaySession.subscribePaced().</li>
+ * <li>mktdata.control - request-response, applies ControlRequest to session.</li>
+ * </ul>
+ */
+@Slf4j
+@Controller
+@MessageMapping("mktdata")
+public class RSocketReplayController {
+
+    @Autowired
+    private ReplayService marketDataService;
+
+    @MessageMapping("session")
+    public Mono<String> createSession() {
+        return Mono.fromCallable(marketDataService::createSession);
+    }
+
+    @MessageMapping("subscribe.{sessionId}")
+    public Flux<MarketDataEvent> subscribe(@DestinationVariable String sessionId) {
+        return Flux.defer(() -> marketDataService.session(sessionId).subscribePaced());
+    }
+
+    @MessageMapping("control")
+    public Mono<ControlReply> control(ControlRequest request) {
+        return Mono.fromCallable(() -> {
+            ReplayCommand command = ReplayCommand.parse(request.command());
+            command.apply(marketDataService.session(request.sessionId()), request.argument());
+            return ControlReply.ok(command.name(), request.sessionId());
+        }).onErrorResume(ReplayException.class,
+                e -> Mono.just(ControlReply.error(request.command(), e.getMessage())));
+    }
+}
@@ -0,0 +1,153 @@
+package com.pragma.demo.controllers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pragma.demo.codec.MarketDataBinaryEncoder;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.services.DatasetNotReadyException;
+import com.pragma.demo.services.ReplayCommand;
+import com.pragma.demo.services.ReplayException;
+import com.pragma.demo.services.ReplaySession;
+import com.pragma.demo.services.ReplayService;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Full-duplex replay endpoint. A client opens one WebSocket connection, sends control commands as
+ * text frames and receives the session event stream on the same socket. The session is looked up
+ * once and bound to the connection, so commands skip the per-request validation and cache lookups
+ * of the REST API.
+ *
+ * Query parameters:
+ * <ul>
+ * <li>sessionId - bind an existing session. If absent, a new session is created for the connection
+ * and removed when the connection closes.</li>
+ * <li>symbols - comma separated symbols for the session created for the connection, e.g.
+ * symbols=AAPL,MSFT. Ignored with sessionId.</li>
+ * <li>dataset - dataset for the session created for the connection, e.g. dataset=2019-07-15.
+ * Ignored with sessionId.</li>
+ * <li>format=binary - send events as binary frames (see MarketDataBinaryEncoder) instead of JSON
+ * text frames.</li>
+ * </ul>
+ *
+ * The connection is closed with 1008 (policy violation) if the session cannot be bound, or 1013
+ * (try again later) while the default dataset is loading.
+ *
+ * Command frames are "command [argument]", e.g. "start", "speed 2.0", "jump 42", or the single
+ * letter aliases from ReplayCommand, e.g. "j 42". Every command is answered with a JSON
+ * ControlReply. The first reply on a connection is SESSION with the bound session id.
+ */
+@Slf4j
+@Component
+public class ReplayWebSocketHandler implements WebSocketHandler {
+
+    @Autowired
+    private ReplayService marketDataService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> handle(WebSocketSession ws) {
+        Map<String, String> params = UriComponentsBuilder
+                .fromUri(ws.getHandshakeInfo().getUri()).build().getQueryParams()
+                .toSingleValueMap();
+        boolean owned = params.get("sessionId") == null;
+        boolean binary = "binary".equalsIgnoreCase(params.get("format"));
+
+        return Mono.fromCallable(() -> marketDataService.session(
+                owned ? marketDataService.createSession(params.get("dataset"),
+                        symbols(params.get("symbols")))
+                        : params.get("sessionId")))
+                .subscribeOn(Schedulers.boundedElastic()) // dataset may be loaded
+                .onErrorResume(ReplayException.class, e -> ws
+                        .close((e instanceof DatasetNotReadyException ? CloseStatus.SERVICE_OVERLOAD
+                                : CloseStatus.POLICY_VIOLATION).withReason(e.getMessage()))
+                        .then(Mono.empty()))
+                .flatMap(session -> bind(ws, session, owned, binary));
+    }
+
+    // Serve the connection on the bound session
+    private Mono<Void> bind(WebSocketSession ws, ReplaySession session, boolean owned,
+            boolean binary) {
+        log.trace("websocket: {} bound to session: {}", ws.getId(), session.sessionId());
+
+        // Command replies are emitted from the inbound side only (one frame at a time), so a
+        // unicast sink is safe here. The subscribe error reply is sent on the event stream instead
+        Sinks.Many<ControlReply> replies = Sinks.many().unicast().onBackpressureBuffer();
+        replies.tryEmitNext(ControlReply.ok("SESSION", session.sessionId()));
+
+        Flux<WebSocketMessage> events = Flux.defer(() -> {
+            if (binary) {
+                MarketDataBinaryEncoder encoder = new MarketDataBinaryEncoder();
+                return session.subscribe().map(event -> ws
+                        .binaryMessage(factory -> factory.wrap(encoder.encode(event))));
+            }
+            return session.subscribe().map(event -> ws.textMessage(toJson(event)));
+        }).onErrorResume(ReplayException.class, e -> Flux.just(
+                ws.textMessage(toJson(ControlReply.error("SUBSCRIBE", e.getMessage())))));
+        Flux<WebSocketMessage> control = replies.asFlux().map(r -> ws.textMessage(toJson(r)));
+
+        Mono<Void> input = ws.receive().map(WebSocketMessage::getPayloadAsText)
+                .doOnNext(frame -> replies.tryEmitNext(execute(session, frame))).then();
+        Mono<Void> output = ws.send(Flux.merge(control, events));
+
+        return Mono.firstWithSignal(input, output)
+                .doFinally(signal -> release(ws, session, owned));
+    }
+
+    private ControlReply execute(ReplaySession session, String frame) {
+        String[] parts = frame.trim().split("\\s+", 2);
+        try {
+            ReplayCommand command = ReplayCommand.parse(parts[0]);
+            command.apply(session, parts.length > 1 ? parts[1] : null);
+            return ControlReply.ok(command.name(), session.sessionId());
+        }
+        catch (ReplayException e) {
+            return ControlReply.error(parts[0], e.getMessage());
+        }
+    }
+
+    private void release(WebSocketSession ws, ReplaySession session, boolean owned) {
+        log.trace("websocket: {} closed, session: {}", ws.getId(), session.sessionId());
+        try {
+            if (session.isRunning() && !session.isTerminated())
+                session.stop();
+            if (owned)
+                marketDataService.removeSession(session.sessionId());
+        }
+        catch (ReplayException e) {
+            // e.g. session expired or terminated meanwhile
+            log.trace("websocket: {} release of session: {} failed: {}", ws.getId(),
+                    session.sessionId(), e.getMessage());
+        }
+    }
+
+    private static List<String> symbols(String param) {
+        if (param == null || param.isBlank())
+            return List.of();
+        return Arrays.stream(param.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e) {
+            throw new ReplayException(e.getMessage());
+        }
+    }
+}
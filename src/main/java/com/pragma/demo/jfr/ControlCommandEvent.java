@@ -0,0 +1,66 @@
+package com.pragma.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Control command applied to a replay session, duration is the command latency.
+ */
+@Name("com.pragma.demo.ControlCommand")
+@Label("Control Command")
+@Category("Market Data Replay")
+@Description("Control command applied to a replay session")
+@StackTrace(false)
+public class ControlCommandEvent extends Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Command")
+    public String command;
+
+    @Label("Argument")
+    public String argument;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Message")
+    @Description("Failure message")
+    public String message;
+
+    /**
+     * Run control command, recording it when the event is enabled.
+     *
+     * @param sessionId Session id.
+     * @param command Command name, e.g. START.
+     * @param argument Command argument, may be null.
+     * @param action Command.
+     */
+    public static void record(String sessionId, String command, Object argument,
+            Runnable action) {
+        ControlCommandEvent event = new ControlCommandEvent();
+        event.begin();
+        try {
+            action.run();
+            event.succeeded = true;
+        }
+        catch (RuntimeException e) {
+            event.message = e.getMessage();
+            throw e;
+        }
+        finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = sessionId;
+                event.command = command;
+                event.argument = argument == null ? null : argument.toString();
+                event.commit();
+            }
+        }
+    }
+}
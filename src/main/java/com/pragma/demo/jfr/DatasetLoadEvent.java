@@ -0,0 +1,54 @@
+package com.pragma.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Dataset loaded (or uploaded) into the dataset catalog, duration is the load time.
+ */
+@Name("com.pragma.demo.DatasetLoad")
+@Label("Dataset Load")
+@Category("Market Data Replay")
+@Description("Dataset loaded into the dataset catalog")
+public class DatasetLoadEvent extends Event {
+
+    @Label("Dataset")
+    public String dataset;
+
+    @Label("Source")
+    @Description("files or upload")
+    public String source;
+
+    @Label("Version")
+    public long version;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Symbols")
+    public int symbols;
+
+    @Label("Estimated Size")
+    @DataAmount
+    public long estimatedBytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("Message")
+    @Description("Failure message")
+    public String message;
+
+    /**
+     * @param dataset Dataset name.
+     * @param source Dataset source, files or upload.
+     */
+    public DatasetLoadEvent(String dataset, String source) {
+        this.dataset = dataset;
+        this.source = source;
+    }
+}
@@ -0,0 +1,75 @@
+package com.pragma.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Replay session failed to emit an event, or an analytics point, to its subscriber.
+ */
+@Name("com.pragma.demo.EmitFailure")
+@Label("Emit Failure")
+@Category("Market Data Replay")
+@Description("Replay session failed to emit an event or analytics point")
+@StackTrace(false)
+public class EmitFailureEvent extends Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Event Id")
+    public int eventId;
+
+    @Label("Snapshot")
+    @Description("Event was part of the initial image sent after a reposition")
+    public boolean snapshot;
+
+    @Label("Series")
+    @Description("Analytics series of the point, null for events")
+    public String series;
+
+    @Label("Emit Result")
+    @Description("Reactor Sinks.EmitResult, e.g. FAIL_OVERFLOW")
+    public String result;
+
+    /**
+     * Record emit failure, no-op unless the event is enabled.
+     *
+     * @param sessionId Session id.
+     * @param eventId Id of the event that was not emitted.
+     * @param snapshot True for an initial image event.
+     * @param result Emit result.
+     */
+    public static void record(String sessionId, int eventId, boolean snapshot, String result) {
+        EmitFailureEvent event = new EmitFailureEvent();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.eventId = eventId;
+            event.snapshot = snapshot;
+            event.result = result;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record analytics point emit failure, no-op unless the event is enabled.
+     *
+     * @param sessionId Session id.
+     * @param series Analytics series.
+     * @param index Event position the point is derived from, recorded as the event id.
+     * @param result Emit result.
+     */
+    public static void record(String sessionId, String series, int index, String result) {
+        EmitFailureEvent event = new EmitFailureEvent();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.eventId = index;
+            event.series = series;
+            event.result = result;
+            event.commit();
+        }
+    }
+}
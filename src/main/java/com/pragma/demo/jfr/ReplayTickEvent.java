@@ -0,0 +1,40 @@
+package com.pragma.demo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One publishing tick of a replay session, duration is the time spent publishing. Sessions tick
+ * every publishTimerMillis, so this event is disabled by default - enable
+ * com.pragma.demo.ReplayTick in the recording settings to diagnose a stuttering replay.
+ */
+@Name("com.pragma.demo.ReplayTick")
+@Label("Replay Tick")
+@Category("Market Data Replay")
+@Description("Publishing tick of a replay session")
+@Enabled(false)
+@StackTrace(false)
+public class ReplayTickEvent extends Event {
+
+    @Label("Session Id")
+    public String sessionId;
+
+    @Label("Events Released")
+    @Description("Events published on this tick")
+    public int eventsReleased;
+
+    @Label("Tick Lateness")
+    @Description("Time between when the tick was due and when it ran")
+    @Timespan(Timespan.MILLISECONDS)
+    public long latenessMillis;
+
+    @Label("Replay Clock")
+    @Description("Session replay clock after the tick, market epoch millis")
+    public long replayClockMillis;
+}
@@ -0,0 +1,15 @@
+package com.pragma.demo.models;
+
+import java.util.Map;
+
+/**
+ * Point of a derived analytics series (OHLC bar, VWAP, spread statistics).
+ *
+ * @param series Series name, e.g. bars-1s.
+ * @param index Event position the point is derived from - the point is published once all events
+ *        before this position have been published.
+ * @param timestamp Market time the point becomes known (event time, or bar end for bars).
+ * @param values Named values, e.g. open/high/low/close/volume for bars.
+ */
+public record AnalyticsPoint(String series, int index, long timestamp, Map<String, Double> values) {
+}
@@ -0,0 +1,20 @@
+package com.pragma.demo.models;
+
+/**
+ * Compression of event streams since startup, to decide per deployment whether compression pays
+ * off - bandwidth saved (ratio) vs CPU spent (nanos per KB).
+ *
+ * @param gzipStreams Streams compressed with gzip.
+ * @param deflateStreams Streams compressed with deflate.
+ * @param activeStreams Compressed streams currently open.
+ * @param messages Messages (e.g. SSE events) compressed, each flushed on its own.
+ * @param rawBytes Bytes before compression.
+ * @param compressedBytes Bytes after compression, including stream headers and trailers.
+ * @param ratio rawBytes / compressedBytes.
+ * @param compressMillis CPU time spent compressing.
+ * @param nanosPerKb CPU time spent per KB of raw bytes.
+ */
+public record CompressionReport(long gzipStreams, long deflateStreams, long activeStreams,
+        long messages, long rawBytes, long compressedBytes, double ratio, long compressMillis,
+        double nanosPerKb) {
+}
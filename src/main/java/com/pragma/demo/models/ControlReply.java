@@ -0,0 +1,15 @@
+package com.pragma.demo.models;
+
+/**
+ * Reply to a control command sent over a streaming transport (WebSocket, RSocket).
+ */
+public record ControlReply(String command, String status, String message) {
+
+    public static ControlReply ok(String command, String message) {
+        return new ControlReply(command, "OK", message);
+    }
+
+    public static ControlReply error(String command, String message) {
+        return new ControlReply(command, "ERROR", message);
+    }
+}
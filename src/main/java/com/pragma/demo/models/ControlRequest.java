@@ -0,0 +1,11 @@
+package com.pragma.demo.models;
+
+/**
+ * Control command sent over a streaming transport (RSocket).
+ *
+ * @param sessionId Session id (UUID).
+ * @param command Command name or alias, see ReplayCommand.
+ * @param argument Command argument, may be null for commands without argument.
+ */
+public record ControlRequest(String sessionId, String command, String argument) {
+}
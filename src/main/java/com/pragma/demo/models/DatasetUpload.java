@@ -0,0 +1,15 @@
+package com.pragma.demo.models;
+
+/**
+ * Result of a streamed dataset upload.
+ *
+ * @param dataset Dataset name.
+ * @param version Dataset version - replaces any previous version of the dataset.
+ * @param rows Rows loaded.
+ * @param skippedRows Rows skipped (unparseable or out of timestamp order).
+ * @param millis Upload duration, from first byte to dataset registered.
+ * @param rowsPerSecond Achieved ingest rate.
+ */
+public record DatasetUpload(String dataset, long version, long rows, long skippedRows, long millis,
+        double rowsPerSecond) {
+}
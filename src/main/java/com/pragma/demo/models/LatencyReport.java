@@ -0,0 +1,11 @@
+package com.pragma.demo.models;
+
+/**
+ * Latency distribution of a replay session stage, in micros.
+ *
+ * @param stage Stage: emit (scheduled to emit) or send (emit to send), see ReplayEnvelope.
+ * @param count Number of events recorded.
+ */
+public record LatencyReport(String stage, long count, double mean, long p50, long p90, long p99,
+        long p999, long max) {
+}
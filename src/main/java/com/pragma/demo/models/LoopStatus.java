@@ -0,0 +1,15 @@
+package com.pragma.demo.models;
+
+/**
+ * Loop mode state and counters of a replay session.
+ *
+ * @param looping Loop mode - the session wraps to the first event at the end of the data.
+ * @param shiftTimestamps Event timestamps are shifted by the data span on every loop, so time
+ *        keeps increasing across loops.
+ * @param loops Completed loops since the session was created.
+ * @param eventsPublished Events published since the session was created, across all loops.
+ * @param timeShiftMillis Current timestamp shift.
+ */
+public record LoopStatus(boolean looping, boolean shiftTimestamps, long loops,
+        long eventsPublished, long timeShiftMillis) {
+}
@@ -1,5 +1,53 @@
 package com.pragma.demo.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Market data event. Snapshot events are historic events re-sent to describe prevailing market
+ * state (initial image) after a session is repositioned - they are not part of the event stream at
+ * the current position.
+ *
+ * Symbol is set for events loaded from per-symbol data files and null for the single default data
+ * file.
+ */
 public record MarketDataEvent(int id, long timestamp, String event, double price1, int shares1,
-        String xchg1, double price2, int shares2, String xchg2) {
+        String xchg1, double price2, int shares2, String xchg2,
+        @JsonInclude(JsonInclude.Include.NON_DEFAULT) boolean snapshot,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String symbol) {
+
+    public MarketDataEvent(int id, long timestamp, String event, double price1, int shares1,
+            String xchg1, double price2, int shares2, String xchg2) {
+        this(id, timestamp, event, price1, shares1, xchg1, price2, shares2, xchg2, false, null);
+    }
+
+    public MarketDataEvent(int id, long timestamp, String event, double price1, int shares1,
+            String xchg1, double price2, int shares2, String xchg2, boolean snapshot) {
+        this(id, timestamp, event, price1, shares1, xchg1, price2, shares2, xchg2, snapshot, null);
+    }
+
+    /**
+     * @return Copy of this event flagged as snapshot.
+     */
+    public MarketDataEvent asSnapshot() {
+        return new MarketDataEvent(id, timestamp, event, price1, shares1, xchg1, price2, shares2,
+                xchg2, true, symbol);
+    }
+
+    /**
+     * @param timestamp Timestamp, epoch millis.
+     * @return Copy of this event with timestamp.
+     */
+    public MarketDataEvent withTimestamp(long timestamp) {
+        return new MarketDataEvent(id, timestamp, event, price1, shares1, xchg1, price2, shares2,
+                xchg2, snapshot, symbol);
+    }
+
+    /**
+     * @param symbol Symbol.
+     * @return Copy of this event with symbol.
+     */
+    public MarketDataEvent withSymbol(String symbol) {
+        return new MarketDataEvent(id, timestamp, event, price1, shares1, xchg1, price2, shares2,
+                xchg2, snapshot, symbol);
+    }
 }
@@ -0,0 +1,27 @@
+package com.pragma.demo.models;
+
+/**
+ * Market data event with server-side timing, in epoch micros aligned to System.nanoTime (i.e.
+ * monotonic within the server, comparable across sessions).
+ *
+ * emitMicros - scheduledMicros is publishing lateness (late tick or slow publishing loop),
+ * sendMicros - emitMicros is time spent in the session buffer waiting for the subscriber, and the
+ * subscriber receive time - sendMicros is the network (subject to clock sync).
+ *
+ * @param event Market data event.
+ * @param scheduledMicros When the event was due - when the replay clock reached the event
+ *        timestamp at the session speed. Equal to emitMicros for snapshot events.
+ * @param emitMicros When the session emitted the event.
+ * @param sendMicros When the transport took the event from the session buffer.
+ */
+public record ReplayEnvelope(MarketDataEvent event, long scheduledMicros, long emitMicros,
+        long sendMicros) {
+
+    /**
+     * @param sendMicros Send time.
+     * @return Copy of this envelope with send time.
+     */
+    public ReplayEnvelope sent(long sendMicros) {
+        return new ReplayEnvelope(event, scheduledMicros, emitMicros, sendMicros);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pragma.demo.models;
+
+import java.util.List;
+
+/**
+ * Replay session checkpoint - a journal record of the session cursor and settings, enough to
+ * rebuild the session after a restart. The event stream itself is not part of the checkpoint, the
+ * session is rebuilt on the same dataset and symbols.
+ *
+ * @param sessionId Session id.
+ * @param dataset Dataset name, null for the default dataset.
+ * @param symbols Symbols replayed, empty for the dataset data file.
+ * @param position Cursor position (index of the next event).
+ * @param replayClockMillis Replay clock, market time.
+ * @param replaySpeed Replay speed.
+ * @param maxGapMillis Gap compression, negative if disabled.
+ * @param running Session was running.
+ * @param looping Loop mode.
+ * @param shiftTimestamps Loop mode timestamp shift.
+ * @param timeShiftMillis Current timestamp shift.
+ * @param loops Completed loops.
+ * @param eventsPublished Events published.
+ * @param removed Session was removed - tombstone, all other fields are unset.
+ */
+public record SessionCheckpoint(String sessionId, String dataset, List<String> symbols,
+        int position, double replayClockMillis, double replaySpeed, long maxGapMillis,
+        boolean running, boolean looping, boolean shiftTimestamps, long timeShiftMillis, long loops,
+        long eventsPublished, boolean removed) {
+
+    /**
+     * @param sessionId Session id.
+     * @return Tombstone of a removed session.
+     */
+    public static SessionCheckpoint removed(String sessionId) {
+        return new SessionCheckpoint(sessionId, null, List.of(), 0, 0, 0, 0, false, false, false,
+                0, 0, 0, true);
+    }
+}
@@ -0,0 +1,27 @@
+package com.pragma.demo.models;
+
+/**
+ * Replay session statistics sample, taken from counters kept by the session.
+ *
+ * @param sessionId Session id.
+ * @param state running, stopped, detached (subscriber went away) or terminated.
+ * @param position Cursor position (index of the next event).
+ * @param size Number of events.
+ * @param replayClockMillis Replay clock, market time.
+ * @param wallClockMillis Time of the sample.
+ * @param replaySpeed Configured replay speed.
+ * @param eventsPublished Events published since the session was created.
+ * @param eventsPerSecond Achieved events per second since the previous sample.
+ * @param bufferDepth Events emitted but not yet taken by the subscriber.
+ * @param subscribers Subscriber count.
+ */
+public record SessionStats(String sessionId, String state, int position, int size,
+        long replayClockMillis, long wallClockMillis, double replaySpeed, long eventsPublished,
+        double eventsPerSecond, int bufferDepth, int subscribers) {
+
+    public SessionStats withEventsPerSecond(double eventsPerSecond) {
+        return new SessionStats(sessionId, state, position, size, replayClockMillis,
+                wallClockMillis, replaySpeed, eventsPublished, eventsPerSecond, bufferDepth,
+                subscribers);
+    }
+}
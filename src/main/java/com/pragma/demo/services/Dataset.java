@@ -0,0 +1,104 @@
+package com.pragma.demo.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loaded dataset (e.g. one trading day): an optional primary event store and optional per-symbol
+ * segments. Shared by all sessions replaying it. Sessions hold a reference while they exist, see
+ * DatasetCatalog.
+ */
+public class Dataset {
+
+    private final String name;
+    private final long version; // increases with every load, including reloads
+    private final EventStore store; // primary data file, may be null
+    private final Map<String, EventStore> symbols; // sorted by symbol
+    private final AtomicInteger references = new AtomicInteger(0);
+
+    Dataset(String name, long version, EventStore store, Map<String, EventStore> symbols) {
+        this.name = name;
+        this.version = version;
+        this.store = store;
+        this.symbols = symbols;
+    }
+
+    /**
+     * @return Dataset name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return Dataset version.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return Symbols with their own segment.
+     */
+    public List<String> symbols() {
+        return List.copyOf(symbols.keySet());
+    }
+
+    /**
+     * Resolve segments to replay.
+     *
+     * @param symbols Symbols (case-insensitive). Null or empty for the primary data file.
+     * @return Event stores, one per symbol.
+     *
+     * @throws ReplayException if dataset has no primary data file or a symbol is not found.
+     */
+    public List<EventStore> segments(List<String> symbols) {
+        if (symbols == null || symbols.isEmpty()) {
+            if (store == null) {
+                throw new ReplayException(String.format(
+                        "dataset has no default data, symbols required: %s", name));
+            }
+            return List.of(store);
+        }
+        return symbols.stream().map(String::toUpperCase).distinct().map(symbol -> {
+            EventStore segment = this.symbols.get(symbol);
+            if (segment == null) {
+                throw new ReplayException(
+                        String.format("symbol not found: %s, dataset: %s", symbol, name));
+            }
+            return segment;
+        }).toList();
+    }
+
+    /**
+     * @return Total number of events in all segments.
+     */
+    public int size() {
+        return (store == null ? 0 : store.size())
+                + symbols.values().stream().mapToInt(EventStore::size).sum();
+    }
+
+    /**
+     * @return Estimated heap footprint in bytes.
+     */
+    public long estimatedBytes() {
+        return (store == null ? 0 : store.estimatedBytes())
+                + symbols.values().stream().mapToLong(EventStore::estimatedBytes).sum();
+    }
+
+    /**
+     * @return Number of sessions holding this dataset.
+     */
+    public int references() {
+        return references.get();
+    }
+
+    int retain() {
+        return references.incrementAndGet();
+    }
+
+    int release() {
+        return references.decrementAndGet();
+    }
+}
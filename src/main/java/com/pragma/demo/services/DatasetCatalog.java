@@ -0,0 +1,579 @@
+package com.pragma.demo.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.stereotype.Service;
+import com.pragma.demo.jfr.DatasetLoadEvent;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.data.CSVReaderService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Catalog of replayable datasets.
+ *
+ * The default dataset (app.market.replay.data_file plus the optional per-symbol data_dir) is loaded
+ * at startup and never evicted. With app.market.replay.datasets.asyncLoad it is loaded in the
+ * background once the application is ready (HTTP port open) and sessions on it are refused until
+ * it is loaded, see {@link #isReady()}. Named datasets live under app.market.replay.datasets_dir,
+ * either as NAME.csv or as a NAME/ directory of per-symbol SYMBOL.csv files (or both). They are
+ * loaded on first use and shared by all sessions on them - every session holds a reference until
+ * it terminates or is closed. Datasets without references are evicted least recently used first
+ * while the loaded datasets exceed the memory budget.
+ *
+ * Datasets can be reloaded while sessions replay them. The new version is built off to the side and
+ * swapped in atomically for new sessions. Existing sessions keep the version they hold, which is
+ * retired and dropped once its last session releases it.
+ *
+ * Uploaded datasets (see {@link #register(String, List)}) have no backing files, so they stay
+ * loaded until replaced by another upload of the same name.
+ *
+ * The optional live dataset (app.market.replay.live_file) is a data file that is still being
+ * written. It is tailed from startup, never evicted, and sessions on it stream appended rows.
+ */
+@Slf4j
+@Service
+public class DatasetCatalog {
+
+    public static final String DEFAULT_DATASET = "default";
+    public static final String LIVE_DATASET = "live";
+
+    // Dataset names map to file names, so no path separators or leading dots
+    private static final Pattern DATASET_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+
+    private final CSVReaderService csvReader;
+
+    @Value("${app.market.replay.checkpointInterval}")
+    private int checkpointInterval;
+
+    @Value("${app.market.replay.data_file}")
+    private String dataFile;
+
+    @Value("${app.market.replay.data_dir:}")
+    private String dataDir;
+
+    @Value("${app.market.replay.datasets_dir:}")
+    private String datasetsDir;
+
+    @Value("${app.market.replay.datasets.memoryBudgetMb:512}")
+    private long memoryBudgetMb;
+
+    @Value("${app.market.replay.datasets.asyncLoad:false}")
+    private boolean asyncLoad;
+
+    @Value("${app.market.replay.live_file:}")
+    private String liveFile;
+
+    @Value("${app.market.replay.live.pollMillis:50}")
+    private long livePollMillis;
+
+    private FileTailer liveTailer;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private Dataset defaultDataset; // guarded by this
+
+    // Completed once the default dataset is loaded
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    // Loaded named datasets in access order, least recently used first. Guarded by this
+    private final Map<String, Dataset> datasets = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Replaced versions still held by sessions. Guarded by this
+    private final List<Dataset> retired = new ArrayList<>();
+
+    // Registered (uploaded) datasets, pinned while current. Guarded by this
+    private final Set<Dataset> registered = new HashSet<>();
+
+    private final AtomicLong versions = new AtomicLong(0);
+
+    // Loads of a dataset are serialized per name, so concurrent sessions load it once and reloads
+    // do not race
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DatasetCatalog(ApplicationContext context,
+            @Value("${app.csvReader}") String implementation) {
+        this.csvReader = context.getBean(implementation, CSVReaderService.class);
+    }
+
+    /**
+     * Acquire dataset, loading it if needed. Caller must release the dataset when done.
+     *
+     * @param name Dataset name. Null, blank or "default" for the default dataset.
+     * @return Dataset.
+     *
+     * @throws DatasetNotReadyException if the default dataset is still loading.
+     * @throws ReplayException if dataset is not found or cannot be loaded.
+     */
+    public Dataset acquire(String name) {
+        if (isDefault(name)) {
+            requireReady();
+            synchronized (this) {
+                defaultDataset.retain();
+                return defaultDataset;
+            }
+        }
+        validateName(name);
+
+        Dataset dataset = retainLoaded(name);
+        if (dataset != null)
+            return dataset;
+
+        synchronized (loadLocks.computeIfAbsent(name, n -> new Object())) {
+            dataset = retainLoaded(name);
+            if (dataset != null)
+                return dataset;
+
+            dataset = load(name);
+            synchronized (this) {
+                dataset.retain();
+                datasets.put(name, dataset);
+                evict();
+            }
+            return dataset;
+        }
+    }
+
+    /**
+     * Release dataset acquired by {@link #acquire(String)}. Unused datasets become eligible for
+     * eviction.
+     *
+     * @param dataset Dataset.
+     */
+    public synchronized void release(Dataset dataset) {
+        int references = dataset.release();
+        log.trace("release dataset: {}, references: {}", dataset.name(), references);
+        if (references == 0) {
+            if (retired.remove(dataset))
+                log.info("Dropped retired dataset: {}, version: {}", dataset.name(),
+                        dataset.version());
+            evict();
+        }
+    }
+
+    /**
+     * Reload dataset from its files. The new version is built while the current version keeps
+     * serving, then swapped in for new sessions. Sessions on the current version are not affected.
+     * Blocks while the files are parsed, so call off the request thread.
+     *
+     * @param name Dataset name. Null, blank or "default" for the default dataset.
+     * @return New dataset version.
+     *
+     * @throws ReplayException if dataset is live, not found or cannot be loaded. The current
+     *         version stays in place.
+     */
+    public Dataset reload(String name) {
+        boolean isDefault = isDefault(name);
+        if (LIVE_DATASET.equals(name)) {
+            throw new ReplayException("live dataset cannot be reloaded");
+        }
+        if (!isDefault)
+            validateName(name);
+
+        if (isDefault)
+            requireReady();
+
+        String key = isDefault ? DEFAULT_DATASET : name;
+        synchronized (loadLocks.computeIfAbsent(key, n -> new Object())) {
+            Dataset fresh;
+            if (isDefault) {
+                try {
+                    fresh = loadDefault();
+                }
+                catch (IOException e) {
+                    log.error("Failed to reload default dataset", e);
+                    throw new ReplayException(String.format(
+                            "failed to load dataset: %s, %s", key, e.getMessage()));
+                }
+            }
+            else {
+                fresh = load(name);
+            }
+
+            synchronized (this) {
+                Dataset current;
+                if (isDefault) {
+                    current = defaultDataset;
+                    fresh.retain(); // pinned
+                    defaultDataset = fresh;
+                    current.release(); // unpin
+                }
+                else {
+                    current = replace(name, fresh);
+                }
+                if (current != null && current.references() > 0 && !retired.contains(current))
+                    retired.add(current);
+                evict();
+            }
+            log.info("Reloaded dataset: {}, version: {}, events: {}", key, fresh.version(),
+                    fresh.size());
+            return fresh;
+        }
+    }
+
+    /**
+     * Register events as a named dataset, e.g. from an upload. Replaces a loaded dataset of the
+     * same name the way {@link #reload(String)} does. Registered datasets are never evicted.
+     *
+     * @param name Dataset name.
+     * @param events Events in timestamp order.
+     * @return Registered dataset.
+     *
+     * @throws ReplayException if name is invalid or reserved, or events are out of order.
+     */
+    public Dataset register(String name, List<MarketDataEvent> events) {
+        validateUpload(name);
+        return register(name, new EventStore(events, checkpointInterval));
+    }
+
+    /**
+     * Create an empty store to fill batch by batch and then register, e.g. while an upload is
+     * parsed. Derives analytics like stores loaded from files.
+     *
+     * @return Store open for appending.
+     */
+    public EventStore openStore() {
+        return EventStore.open(checkpointInterval, true);
+    }
+
+    /**
+     * Register a store filled by the caller as a named dataset, see {@link #openStore()} and
+     * {@link #register(String, List)}.
+     *
+     * @param name Dataset name.
+     * @param store Closed store.
+     * @return Registered dataset.
+     *
+     * @throws ReplayException if name is invalid or reserved, or store is still open.
+     */
+    public Dataset register(String name, EventStore store) {
+        validateUpload(name);
+        if (store.isOpen()) {
+            throw new ReplayException(String.format("Dataset store is still open: %s", name));
+        }
+
+        synchronized (loadLocks.computeIfAbsent(name, n -> new Object())) {
+            DatasetLoadEvent event = new DatasetLoadEvent(name, "upload");
+            event.begin();
+            Dataset dataset = new Dataset(name, versions.incrementAndGet(), store, Map.of());
+            commit(event, dataset, null);
+            synchronized (this) {
+                dataset.retain(); // pinned, there are no files to load it from again
+                registered.add(dataset);
+                replace(name, dataset);
+                evict();
+            }
+            log.info("Registered dataset: {}, version: {}, events: {}", name, dataset.version(),
+                    dataset.size());
+            return dataset;
+        }
+    }
+
+    /**
+     * Validate name of an uploaded dataset, e.g. before its data is read.
+     *
+     * @param name Dataset name.
+     *
+     * @throws ReplayException if name is invalid or reserved.
+     */
+    public void validateUpload(String name) {
+        if (isDefault(name) || LIVE_DATASET.equals(name)) {
+            throw new ReplayException(String.format("Reserved dataset name: %s", name));
+        }
+        validateName(name);
+    }
+
+    /**
+     * @return Default dataset.
+     */
+    public synchronized Dataset defaultDataset() {
+        return defaultDataset;
+    }
+
+    /**
+     * @return Replaced dataset versions still held by sessions.
+     */
+    public synchronized List<Dataset> retired() {
+        return new ArrayList<>(retired);
+    }
+
+    /**
+     * @return Loaded named datasets, least recently used first.
+     */
+    public synchronized List<Dataset> loaded() {
+        return new ArrayList<>(datasets.values());
+    }
+
+    /**
+     * @return True once the default dataset is loaded.
+     */
+    public boolean isReady() {
+        return ready.isDone();
+    }
+
+    /**
+     * @return Future completed once the default dataset is loaded.
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready.copy();
+    }
+
+    private void requireReady() {
+        if (!isReady())
+            throw new DatasetNotReadyException("default dataset is loading, retry when ready");
+    }
+
+    private static boolean isDefault(String name) {
+        return name == null || name.isBlank() || DEFAULT_DATASET.equals(name);
+    }
+
+    private static void validateName(String name) {
+        if (!DATASET_NAME.matcher(name).matches()) {
+            throw new ReplayException(String.format("Invalid dataset name: %s", name));
+        }
+    }
+
+    private synchronized Dataset retainLoaded(String name) {
+        Dataset dataset = datasets.get(name);
+        if (dataset != null)
+            dataset.retain();
+        return dataset;
+    }
+
+    // Swap in new version of a named dataset, retiring the current one. Caller holds lock
+    private Dataset replace(String name, Dataset fresh) {
+        Dataset current = datasets.put(name, fresh);
+        if (current != null) {
+            if (registered.remove(current))
+                current.release(); // unpin
+            if (current.references() > 0)
+                retired.add(current);
+        }
+        return current;
+    }
+
+    // Evict unused datasets, least recently used first, until within budget. Caller holds lock
+    private void evict() {
+        long budget = memoryBudgetMb * 1024 * 1024;
+        long used = datasets.values().stream().mapToLong(Dataset::estimatedBytes).sum()
+                + retired.stream().mapToLong(Dataset::estimatedBytes).sum();
+        Iterator<Dataset> lru = datasets.values().iterator();
+        while (used > budget && lru.hasNext()) {
+            Dataset dataset = lru.next();
+            if (dataset.references() == 0) {
+                lru.remove();
+                used -= dataset.estimatedBytes();
+                log.info("Evicted dataset: {}, estimated MB: {}", dataset.name(),
+                        dataset.estimatedBytes() / (1024 * 1024));
+            }
+        }
+        if (used > budget)
+            log.warn("Datasets in use exceed memory budget, estimated MB: {}, budget MB: {}",
+                    used / (1024 * 1024), memoryBudgetMb);
+    }
+
+    private Dataset load(String name) {
+        DatasetLoadEvent event = new DatasetLoadEvent(name, "files");
+        event.begin();
+        try {
+            Dataset dataset = read(name);
+            commit(event, dataset, null);
+            return dataset;
+        }
+        catch (ReplayException e) {
+            commit(event, null, e.getMessage());
+            throw e;
+        }
+    }
+
+    private Dataset read(String name) {
+        if (datasetsDir.isBlank()) {
+            throw new ReplayException(String.format("dataset not found: %s", name));
+        }
+
+        log.info("Loading dataset: {}", name);
+        long startMillis = System.currentTimeMillis();
+        try {
+            Resource file = resourceLoader.getResource(datasetsDir + "/" + name + ".csv");
+            EventStore store = file.exists() ? readStore(file, null) : null;
+            Map<String, EventStore> symbols = readSymbols(datasetsDir + "/" + name);
+            if (store == null && symbols.isEmpty()) {
+                throw new ReplayException(String.format("dataset not found: %s", name));
+            }
+
+            Dataset dataset = new Dataset(name, versions.incrementAndGet(), store, symbols);
+            log.info("Loaded dataset: {}, events: {}, symbols: {}, millis: {}", name,
+                    dataset.size(), dataset.symbols(), System.currentTimeMillis() - startMillis);
+            return dataset;
+        }
+        catch (IOException e) {
+            log.error("Failed to load dataset: {}", name, e);
+            throw new ReplayException(
+                    String.format("failed to load dataset: %s, %s", name, e.getMessage()));
+        }
+    }
+
+    // Every SYMBOL.csv in the directory as its own segment
+    private Map<String, EventStore> readSymbols(String dir) throws IOException {
+        Map<String, EventStore> symbols = new TreeMap<>();
+        Resource[] resources = ResourcePatternUtils.getResourcePatternResolver(resourceLoader)
+                .getResources(dir + "/*.csv");
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            String symbol =
+                    filename.substring(0, filename.length() - ".csv".length()).toUpperCase();
+            symbols.put(symbol, readStore(resource, symbol));
+            log.info("Symbol: {}, Events: {}", symbol, symbols.get(symbol).size());
+        }
+        return symbols;
+    }
+
+    private EventStore readStore(Resource resource, String symbol) throws IOException {
+        List<MarketDataEvent> events = csvReader.readMarketDataEvents(resource);
+        if (symbol != null)
+            events = events.stream().map(event -> event.withSymbol(symbol)).toList();
+        return new EventStore(events, checkpointInterval);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (asyncLoad) {
+            // Empty until loaded, sessions on the default dataset are refused meanwhile
+            defaultDataset = new Dataset(DEFAULT_DATASET, versions.incrementAndGet(), null,
+                    Map.of());
+            defaultDataset.retain(); // pinned
+        }
+        else {
+            initDefault();
+        }
+
+        if (!liveFile.isBlank())
+            startLive();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (asyncLoad) {
+            log.info("Loading default dataset in background");
+            Schedulers.boundedElastic().schedule(this::initDefault);
+        }
+    }
+
+    // Load default dataset, empty if the data file cannot be read
+    private void initDefault() {
+        synchronized (loadLocks.computeIfAbsent(DEFAULT_DATASET, n -> new Object())) {
+            Dataset dataset;
+            try {
+                dataset = loadDefault();
+            }
+            catch (IOException | RuntimeException e) {
+                log.error(e.getMessage());
+                dataset = new Dataset(DEFAULT_DATASET, versions.incrementAndGet(), null,
+                        Map.of());
+            }
+            dataset.retain(); // pinned
+            synchronized (this) {
+                Dataset placeholder = defaultDataset;
+                defaultDataset = dataset;
+                if (placeholder != null)
+                    placeholder.release(); // unpin
+            }
+        }
+        ready.complete(null);
+    }
+
+    private Dataset loadDefault() throws IOException {
+        DatasetLoadEvent event = new DatasetLoadEvent(DEFAULT_DATASET, "files");
+        event.begin();
+        try {
+            Dataset dataset = readDefault();
+            commit(event, dataset, null);
+            return dataset;
+        }
+        catch (IOException | RuntimeException e) {
+            commit(event, null, e.getMessage());
+            throw e;
+        }
+    }
+
+    private Dataset readDefault() throws IOException {
+        log.info("Data file: {}", dataFile);
+        EventStore store = readStore(resourceLoader.getResource("classpath:" + dataFile), null);
+
+        if (!store.isEmpty()) {
+            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss:SSS z");
+            sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+            log.info("Events: {}, First: {}, Last: {}", store.size(),
+                    sdf.format(new Date(store.timestamp(0))),
+                    sdf.format(new Date(store.timestamp(store.size() - 1))));
+        }
+
+        Map<String, EventStore> symbols = new TreeMap<>();
+        if (!dataDir.isBlank()) {
+            log.info("Data dir: {}", dataDir);
+            symbols = readSymbols(dataDir);
+        }
+        return new Dataset(DEFAULT_DATASET, versions.incrementAndGet(), store, symbols);
+    }
+
+    // Record dataset load in JFR, dataset is null if load failed
+    private static void commit(DatasetLoadEvent event, Dataset dataset, String failure) {
+        event.end();
+        if (!event.shouldCommit())
+            return;
+        if (dataset != null) {
+            event.succeeded = true;
+            event.version = dataset.version();
+            event.events = dataset.size();
+            event.symbols = dataset.symbols().size();
+            event.estimatedBytes = dataset.estimatedBytes();
+        }
+        event.message = failure;
+        event.commit();
+    }
+
+    // Live dataset starts empty, the tailer appends the file content as it is written
+    private void startLive() {
+        EventStore store = EventStore.open(checkpointInterval);
+        Dataset live = new Dataset(LIVE_DATASET, versions.incrementAndGet(), store, Map.of());
+        live.retain(); // pinned
+        synchronized (this) {
+            datasets.put(LIVE_DATASET, live);
+        }
+        liveTailer = new FileTailer(Path.of(liveFile), store, livePollMillis);
+        liveTailer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (liveTailer != null)
+            liveTailer.stop();
+    }
+}
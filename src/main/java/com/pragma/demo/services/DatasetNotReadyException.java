@@ -0,0 +1,11 @@
+package com.pragma.demo.services;
+
+/**
+ * Default dataset is still loading (see app.market.replay.datasets.asyncLoad). Unlike other replay
+ * failures the request may succeed when retried later.
+ */
+public class DatasetNotReadyException extends ReplayException {
+    public DatasetNotReadyException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,60 @@
+package com.pragma.demo.services;
+
+import java.util.List;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Replay position over one or more event segments. Position is the number of events consumed,
+ * events are returned in timestamp order. Implementations are thread safe - the publishing loop
+ * consumes events while control commands reposition the cursor.
+ */
+interface EventCursor {
+
+    /**
+     * @return Total number of events.
+     */
+    int size();
+
+    /**
+     * @return True if events may still be appended (live data), i.e. reaching size() is not the
+     *         end of the stream.
+     */
+    boolean isOpen();
+
+    /**
+     * @return Number of events consumed, 0 <= position <= size().
+     */
+    int position();
+
+    /**
+     * @return Next event, or null if all events are consumed.
+     */
+    MarketDataEvent peek();
+
+    /**
+     * Consume next event, unless the cursor was repositioned since expectedPosition was read.
+     *
+     * @param expectedPosition Position the next event was peeked at.
+     */
+    void advance(int expectedPosition);
+
+    /**
+     * Move to position. Positions past the end move to the end.
+     *
+     * @param position Number of events to have consumed.
+     */
+    void seekPosition(int position);
+
+    /**
+     * Move to first event at or after timestamp.
+     *
+     * @param epochMillis Epoch millis.
+     */
+    void seekTimestamp(long epochMillis);
+
+    /**
+     * @return Market state snapshot (initial image) at current position, empty if there is no
+     *         state yet.
+     */
+    List<MarketDataEvent> snapshot();
+}
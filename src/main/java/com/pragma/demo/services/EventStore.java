@@ -0,0 +1,285 @@
+package com.pragma.demo.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Store of market data events. Built once per dataset and shared by all sessions replaying it,
+ * together with the lookup structures sessions need, so creating a session does not rebuild them.
+ *
+ * A store built from a list of events is immutable. An open store (see {@link #open(int)}) is
+ * appended to while it is being read - e.g. while a data file that is still being written is
+ * tailed. A single writer appends, readers only see events below the published size. Derived
+ * analytics are only available for immutable stores, or open stores created with analytics once
+ * they are closed.
+ */
+public class EventStore {
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 256;
+
+    // Rough heap cost of one event: the record and its strings, id map entry, timestamp index and
+    // share of checkpoints and analytics. Used for memory budgeting only
+    private static final long ESTIMATED_BYTES_PER_EVENT = 256;
+
+    // Arrays grow by replacement and are written before size is published, so readers must read
+    // size first
+    private volatile MarketDataEvent[] events;
+    private volatile long[] timestamps; // sorted, for binary search by time
+    private volatile int size;
+    private final Map<Integer, Integer> eventIndexById = new ConcurrentHashMap<>(); // fast lookup
+
+    // Market state checkpoints. checkpoints[k] is the state before event k * checkpointInterval,
+    // checkpoints exist for k <= (size - 1) / checkpointInterval
+    private final int checkpointInterval;
+    private volatile MarketState[] checkpoints = new MarketState[0];
+    private final MarketState state = new MarketState(); // state after last appended event
+
+    // Derived series (bars, VWAP, spread), computed once for all sessions. Null for live stores
+    private final MarketAnalytics analytics;
+
+    private volatile boolean open;
+
+    public EventStore(List<MarketDataEvent> events) {
+        this(events, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public EventStore(List<MarketDataEvent> events, int checkpointInterval) {
+        this(checkpointInterval, events.size(), new MarketAnalytics());
+        append(events);
+        analytics.finish(size);
+    }
+
+    private EventStore(int checkpointInterval, int capacity, MarketAnalytics analytics) {
+        this.checkpointInterval = checkpointInterval;
+        this.events = new MarketDataEvent[capacity];
+        this.timestamps = new long[capacity];
+        this.analytics = analytics;
+    }
+
+    /**
+     * Create an empty store open for appending.
+     *
+     * @param checkpointInterval Market state checkpoint interval.
+     * @return Open store.
+     */
+    public static EventStore open(int checkpointInterval) {
+        return open(checkpointInterval, false);
+    }
+
+    /**
+     * Create an empty store open for appending, optionally deriving analytics - e.g. to build a
+     * store batch by batch while a file is parsed, without holding the whole file in a list first.
+     * Analytics are available once the store is closed.
+     *
+     * @param checkpointInterval Market state checkpoint interval.
+     * @param analytics Derive analytics.
+     * @return Open store.
+     */
+    public static EventStore open(int checkpointInterval, boolean analytics) {
+        EventStore store =
+                new EventStore(checkpointInterval, 1024, analytics ? new MarketAnalytics() : null);
+        store.open = true;
+        return store;
+    }
+
+    /**
+     * Append events. Single writer only.
+     *
+     * @param batch Events, in timestamp order and not before the last event in the store.
+     *
+     * @throws ReplayException if events are out of timestamp order. Events before the offending
+     *         event are appended.
+     */
+    public synchronized void append(List<MarketDataEvent> batch) {
+        int n = size;
+        MarketDataEvent[] events = this.events;
+        long[] timestamps = this.timestamps;
+        if (n + batch.size() > events.length) {
+            int capacity = Math.max(events.length * 2, n + batch.size());
+            this.events = events = Arrays.copyOf(events, capacity);
+            this.timestamps = timestamps = Arrays.copyOf(timestamps, capacity);
+        }
+
+        try {
+            for (MarketDataEvent event : batch) {
+                if (n > 0 && event.timestamp() < timestamps[n - 1]) {
+                    throw new ReplayException(String.format(
+                            "Events out of timestamp order at event ID: %d", event.id()));
+                }
+                events[n] = event;
+                timestamps[n] = event.timestamp();
+                eventIndexById.put(event.id(), n);
+
+                if (n % checkpointInterval == 0)
+                    addCheckpoint(n / checkpointInterval, state.copy());
+                state.apply(n, event);
+                if (analytics != null)
+                    analytics.apply(n, event);
+                n++;
+            }
+        }
+        finally {
+            size = n; // publish
+        }
+    }
+
+    private void addCheckpoint(int k, MarketState checkpoint) {
+        if (k >= checkpoints.length)
+            checkpoints = Arrays.copyOf(checkpoints, Math.max(k + 1, checkpoints.length * 2));
+        checkpoints[k] = checkpoint;
+    }
+
+    /**
+     * @return True if more events may be appended.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Close store for appending. Sessions that reach the end of a closed store complete. Spare
+     * capacity is released. No-op if already closed.
+     */
+    public synchronized void close() {
+        if (!open)
+            return;
+        int n = size;
+        if (events.length > n) { // events below size are unchanged, readers are not affected
+            events = Arrays.copyOf(events, n);
+            timestamps = Arrays.copyOf(timestamps, n);
+        }
+        if (analytics != null)
+            analytics.finish(n);
+        open = false;
+    }
+
+    /**
+     * @return Number of events.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return True if store has no events.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get event by index.
+     *
+     * @param index Event index, 0 <= index < size().
+     * @return Event.
+     */
+    public MarketDataEvent get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index);
+        return events[index];
+    }
+
+    /**
+     * Get index of event.
+     *
+     * @param eventId Event id.
+     * @return Event index, or -1 if there is no event with eventId.
+     */
+    public int indexOf(int eventId) {
+        Integer idx = eventIndexById.get(eventId);
+        return idx == null || idx >= size ? -1 : idx;
+    }
+
+    /**
+     * Get index of first event at or after timestamp. O(log n).
+     *
+     * @param timestamp Epoch millis.
+     * @return Event index, or size() if all events are before timestamp.
+     */
+    public int indexAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        long[] timestamps = this.timestamps;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Get event timestamp by index.
+     *
+     * @param index Event index, 0 <= index < size().
+     * @return Epoch millis.
+     */
+    public long timestamp(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Get market state snapshot (initial image) before index: latest NBBO, latest Bid/Ask per
+     * exchange and last Trade, as the events that established them, flagged as snapshot events.
+     * Computed from the nearest checkpoint plus a roll-forward of at most checkpointInterval events,
+     * so cost does not depend on dataset size.
+     *
+     * @param index Event index, 0 <= index <= size().
+     * @return Snapshot events in stream order, empty if there is no state yet.
+     */
+    public List<MarketDataEvent> snapshot(int index) {
+        int n = size;
+        index = Math.min(index, n);
+        if (index <= 0)
+            return List.of();
+
+        MarketState[] checkpoints = this.checkpoints;
+        MarketDataEvent[] events = this.events;
+        int checkpoint = Math.min(index / checkpointInterval, (n - 1) / checkpointInterval);
+        MarketState state = checkpoints[checkpoint].copy();
+        for (int idx = checkpoint * checkpointInterval; idx < index; idx++) {
+            state.apply(idx, events[idx]);
+        }
+
+        int[] indexes = state.indexes();
+        List<MarketDataEvent> snapshot = new ArrayList<>(indexes.length);
+        for (int idx : indexes) {
+            snapshot.add(events[idx].asSnapshot());
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return Derived analytics series.
+     *
+     * @throws ReplayException if store is open for appending.
+     */
+    public MarketAnalytics analytics() {
+        if (analytics == null || open)
+            throw new ReplayException("Analytics are not available for live data");
+        return analytics;
+    }
+
+    /**
+     * @return Estimated heap footprint in bytes.
+     */
+    public long estimatedBytes() {
+        return size * ESTIMATED_BYTES_PER_EVENT;
+    }
+
+    /**
+     * @return All events, in replay order. Unmodifiable.
+     */
+    public List<MarketDataEvent> events() {
+        int n = size; // before events, see above
+        return List.of(Arrays.copyOf(events, n));
+    }
+}
@@ -0,0 +1,111 @@
+package com.pragma.demo.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.data.CSVStreamParser;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Tails a market data CSV file that is still being written and appends new rows to an open event
+ * store. The file position is polled and only bytes appended since the last poll are read and
+ * parsed (see CSVStreamParser) - the file is never re-read. A trailing line without line
+ * terminator is held back until it is complete.
+ *
+ * A file that shrinks (truncated or replaced) is logged and tailing continues from its new end.
+ */
+@Slf4j
+public class FileTailer {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final EventStore store;
+    private final long pollMillis;
+
+    // Poll state, only touched by poll()
+    private long position;
+    private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final CSVStreamParser parser;
+
+    private Disposable poller;
+
+    public FileTailer(Path file, EventStore store, long pollMillis) {
+        this.file = file;
+        this.store = store;
+        this.pollMillis = pollMillis;
+        this.parser = new CSVStreamParser(file.toString());
+    }
+
+    /**
+     * Start polling the file.
+     */
+    public synchronized void start() {
+        log.info("Tailing file: {}, poll millis: {}", file, pollMillis);
+        poller = Flux.interval(Duration.ZERO, Duration.ofMillis(pollMillis),
+                Schedulers.boundedElastic()).onBackpressureDrop().subscribe(tick -> poll());
+    }
+
+    /**
+     * Stop polling and close the store. Sessions complete once they reach the end of the data.
+     */
+    public synchronized void stop() {
+        log.info("Stop tailing file: {}, events: {}", file, store.size());
+        if (poller != null)
+            poller.dispose();
+        store.close();
+    }
+
+    /**
+     * Read and append rows written since the last poll.
+     *
+     * @return Number of events appended.
+     */
+    synchronized int poll() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < position) {
+                log.warn("File: {} shrank from {} to {} bytes, continuing from new end", file,
+                        position, length);
+                position = length;
+                parser.discardPartialLine();
+                return 0;
+            }
+
+            List<MarketDataEvent> events = new ArrayList<>();
+            while (position < length) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0)
+                    break;
+                position += read;
+                buffer.flip();
+                events.addAll(parser.feed(buffer));
+            }
+
+            if (!events.isEmpty()) {
+                store.append(events);
+                log.trace("Appended: {} events from file: {}, total: {}", events.size(), file,
+                        store.size());
+            }
+            return events.size();
+        }
+        catch (NoSuchFileException e) {
+            log.trace("File not found yet: {}", file);
+        }
+        catch (IOException e) {
+            log.error("Failed to read file: {}", file, e);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,185 @@
+package com.pragma.demo.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Derived analytics series, computed incrementally as events are loaded so the work is done once
+ * per dataset instead of once per client. Points are indexed by event position, so sessions can
+ * publish them in step with their own replay position, speed and repositioning.
+ *
+ * Series:
+ * <ul>
+ * <li>bars-1s, bars-1m - OHLC bars of Trade events. Windows without trades produce no bar.</li>
+ * <li>vwap - volume weighted average price after each Trade.</li>
+ * <li>spread - NBBO spread and running mean/min/max spread after each NBBO.</li>
+ * </ul>
+ */
+public class MarketAnalytics {
+
+    public static final String BARS_1S = "bars-1s";
+    public static final String BARS_1M = "bars-1m";
+    public static final String VWAP = "vwap";
+    public static final String SPREAD = "spread";
+
+    private final Map<String, List<AnalyticsPoint>> series = new LinkedHashMap<>();
+
+    private final BarBuilder bars1s = new BarBuilder(BARS_1S, 1_000);
+    private final BarBuilder bars1m = new BarBuilder(BARS_1M, 60_000);
+
+    private double tradeValue; // sum of price * shares
+    private long tradeVolume;
+
+    private double spreadSum;
+    private long spreadCount;
+    private double minSpread = Double.MAX_VALUE;
+    private double maxSpread = -Double.MAX_VALUE;
+
+    MarketAnalytics() {
+        for (String name : List.of(BARS_1S, BARS_1M, VWAP, SPREAD)) {
+            series.put(name, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Roll analytics forward by one event.
+     *
+     * @param index Event index.
+     * @param event Event.
+     */
+    void apply(int index, MarketDataEvent event) {
+        bars1s.apply(index, event);
+        bars1m.apply(index, event);
+
+        if ("Trade".equals(event.event())) {
+            tradeValue += event.price1() * event.shares1();
+            tradeVolume += event.shares1();
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("price", event.price1());
+            values.put("shares", (double) event.shares1());
+            values.put("vwap", tradeVolume == 0 ? event.price1() : tradeValue / tradeVolume);
+            values.put("volume", (double) tradeVolume);
+            add(VWAP, index + 1, event.timestamp(), values);
+        }
+        else if ("NBBO".equals(event.event())) {
+            double spread = event.price2() - event.price1();
+            spreadSum += spread;
+            spreadCount++;
+            minSpread = Math.min(minSpread, spread);
+            maxSpread = Math.max(maxSpread, spread);
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("bid", event.price1());
+            values.put("ask", event.price2());
+            values.put("spread", spread);
+            values.put("meanSpread", spreadSum / spreadCount);
+            values.put("minSpread", minSpread);
+            values.put("maxSpread", maxSpread);
+            add(SPREAD, index + 1, event.timestamp(), values);
+        }
+    }
+
+    /**
+     * Close open bars at end of data.
+     *
+     * @param size Number of events.
+     */
+    void finish(int size) {
+        bars1s.close(size);
+        bars1m.close(size);
+    }
+
+    /**
+     * Get series points.
+     *
+     * @param name Series name.
+     * @return Points, ordered by index.
+     *
+     * @throws ReplayException if series is unknown.
+     */
+    public List<AnalyticsPoint> series(String name) {
+        List<AnalyticsPoint> points = series.get(name);
+        if (points == null)
+            throw new ReplayException(String.format(
+                    "Unknown analytics series: %s, expected one of %s", name, series.keySet()));
+        return points;
+    }
+
+    /**
+     * Get position of first point derived from events at or after position.
+     *
+     * @param name Series name.
+     * @param position Event position.
+     * @return Point position, or number of points if there is none.
+     */
+    public int firstAfter(String name, int position) {
+        List<AnalyticsPoint> points = series(name);
+        int low = 0;
+        int high = points.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (points.get(mid).index() <= position)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void add(String name, int index, long timestamp, Map<String, Double> values) {
+        series.get(name).add(new AnalyticsPoint(name, index, timestamp, values));
+    }
+
+    private class BarBuilder {
+        private final String name;
+        private final long windowMillis;
+
+        private boolean open;
+        private long start;
+        private double first, high, low, last;
+        private long volume;
+
+        BarBuilder(String name, long windowMillis) {
+            this.name = name;
+            this.windowMillis = windowMillis;
+        }
+
+        void apply(int index, MarketDataEvent event) {
+            if (open && event.timestamp() >= start + windowMillis)
+                close(index);
+
+            if (!"Trade".equals(event.event()))
+                return;
+
+            if (!open) {
+                open = true;
+                start = event.timestamp() - Math.floorMod(event.timestamp(), windowMillis);
+                first = high = low = event.price1();
+                volume = 0;
+            }
+            high = Math.max(high, event.price1());
+            low = Math.min(low, event.price1());
+            last = event.price1();
+            volume += event.shares1();
+        }
+
+        // Bar is complete once all events before index (the first event past the window) are out
+        void close(int index) {
+            if (!open)
+                return;
+            open = false;
+
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("start", (double) start);
+            values.put("open", first);
+            values.put("high", high);
+            values.put("low", low);
+            values.put("close", last);
+            values.put("volume", (double) volume);
+            add(name, index, start + windowMillis, values);
+        }
+    }
+}
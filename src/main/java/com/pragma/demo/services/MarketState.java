@@ -0,0 +1,81 @@
+package com.pragma.demo.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Prevailing market state at a position in the event stream: latest NBBO, latest Bid and Ask per
+ * exchange and last Trade. State is kept as indexes of the events that established it, so the
+ * state can be re-sent as the original events.
+ */
+class MarketState {
+
+    private int nbbo = -1;
+    private int trade = -1;
+    private final Map<String, Integer> bids;
+    private final Map<String, Integer> asks;
+
+    MarketState() {
+        this(-1, -1, new HashMap<>(), new HashMap<>());
+    }
+
+    private MarketState(int nbbo, int trade, Map<String, Integer> bids, Map<String, Integer> asks) {
+        this.nbbo = nbbo;
+        this.trade = trade;
+        this.bids = bids;
+        this.asks = asks;
+    }
+
+    /**
+     * Roll state forward by one event.
+     *
+     * @param index Event index.
+     * @param event Event.
+     */
+    void apply(int index, MarketDataEvent event) {
+        if (event.event() == null)
+            return;
+        switch (event.event())
+        {
+            case "NBBO":
+                nbbo = index;
+                break;
+            case "Trade":
+                trade = index;
+                break;
+            case "Bid":
+                bids.put(event.xchg1(), index);
+                break;
+            case "Ask":
+                asks.put(event.xchg1(), index);
+                break;
+            default:
+                break;
+        }
+    }
+
+    MarketState copy() {
+        return new MarketState(nbbo, trade, new HashMap<>(bids), new HashMap<>(asks));
+    }
+
+    /**
+     * @return Indexes of events that make up the state, in stream order.
+     */
+    int[] indexes() {
+        int[] indexes = new int[bids.size() + asks.size() + 2];
+        int count = 0;
+        if (nbbo >= 0)
+            indexes[count++] = nbbo;
+        if (trade >= 0)
+            indexes[count++] = trade;
+        for (int idx : bids.values())
+            indexes[count++] = idx;
+        for (int idx : asks.values())
+            indexes[count++] = idx;
+        int[] result = Arrays.copyOf(indexes, count);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.pragma.demo.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Cursor over several time sorted segments (e.g. one per symbol), producing a single time ordered
+ * stream through a k-way merge. A heap holds the segments that still have events, ordered by the
+ * timestamp of their next event, so every step costs O(log k) and no merged copy of the segments
+ * is built. Events with equal timestamps are returned in segment order. Segments must not be open
+ * for appending.
+ */
+class MergeCursor implements EventCursor {
+
+    private final List<EventStore> segments;
+    private final int size;
+    private final int[] indexes; // next event index per segment
+    private final PriorityQueue<Integer> heap; // segment numbers
+    private int position;
+
+    MergeCursor(List<EventStore> segments) {
+        this.segments = segments;
+        this.size = segments.stream().mapToInt(EventStore::size).sum();
+        this.indexes = new int[segments.size()];
+        this.heap = new PriorityQueue<>(Math.max(1, segments.size()),
+                Comparator.<Integer>comparingLong(
+                        segment -> this.segments.get(segment).timestamp(indexes[segment]))
+                        .thenComparingInt(segment -> segment));
+        reset();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return false;
+    }
+
+    @Override
+    public synchronized int position() {
+        return position;
+    }
+
+    @Override
+    public synchronized MarketDataEvent peek() {
+        Integer segment = heap.peek();
+        return segment == null ? null : segments.get(segment).get(indexes[segment]);
+    }
+
+    @Override
+    public synchronized void advance(int expectedPosition) {
+        if (position == expectedPosition)
+            step();
+    }
+
+    @Override
+    public synchronized void seekPosition(int position) {
+        if (position < this.position)
+            reset();
+        while (this.position < position && !heap.isEmpty())
+            step();
+    }
+
+    @Override
+    public synchronized void seekTimestamp(long epochMillis) {
+        heap.clear();
+        position = 0;
+        for (int segment = 0; segment < segments.size(); segment++) {
+            indexes[segment] = segments.get(segment).indexAtOrAfter(epochMillis);
+            position += indexes[segment];
+            if (indexes[segment] < segments.get(segment).size())
+                heap.add(segment);
+        }
+    }
+
+    @Override
+    public synchronized List<MarketDataEvent> snapshot() {
+        List<MarketDataEvent> snapshot = new ArrayList<>();
+        for (int segment = 0; segment < segments.size(); segment++) {
+            snapshot.addAll(segments.get(segment).snapshot(indexes[segment]));
+        }
+        return snapshot;
+    }
+
+    private void reset() {
+        seekTimestamp(Long.MIN_VALUE);
+    }
+
+    private void step() {
+        int segment = heap.poll();
+        position++;
+        if (++indexes[segment] < segments.get(segment).size())
+            heap.add(segment);
+    }
+}
@@ -0,0 +1,168 @@
+package com.pragma.demo.services;
+
+import java.util.List;
+import java.util.function.Consumer;
+import com.pragma.demo.jfr.ControlCommandEvent;
+
+/**
+ * Replay session control commands. Used by transports that carry commands as data (e.g.
+ * WebSocket frames) rather than as one HTTP request per command.
+ *
+ * Each command has a full name and a single letter alias, both case-insensitive.
+ */
+public enum ReplayCommand {
+    START("s"), STOP("p"), REWIND("r"), JUMP("j"), FORWARD("f"), SPEED("x"), SEEK("t"), GAP("g"),
+    LOOP("l");
+
+    private final String alias;
+
+    ReplayCommand(String alias) {
+        this.alias = alias;
+    }
+
+    /**
+     * Parse command name or alias.
+     *
+     * @param name Command name (e.g. "jump") or alias (e.g. "j").
+     * @return Command.
+     *
+     * @throws ReplayException if name is not a known command.
+     */
+    public static ReplayCommand parse(String name) {
+        for (ReplayCommand command : values()) {
+            if (command.name().equalsIgnoreCase(name) || command.alias.equalsIgnoreCase(name))
+                return command;
+        }
+        throw new ReplayException(String.format("Unknown command: %s", name));
+    }
+
+    /**
+     * Apply command to session.
+     *
+     * @param session Replay session.
+     * @param argument Command argument - event id for JUMP, skip count for FORWARD, speed for
+     *        SPEED, epoch millis for SEEK (or +N/-N millis relative to the replay clock), max gap
+     *        millis for GAP (negative disables), on, off or shift (on with timestamp shift) for
+     *        LOOP. Ignored by other commands.
+     *
+     * @throws ReplayException if session is terminated or argument is missing or invalid.
+     */
+    public void apply(ReplaySession session, String argument) {
+        bind(argument).accept(session);
+    }
+
+    /**
+     * Parse and validate command argument once, e.g. before applying the command to many sessions.
+     *
+     * @param argument Command argument, see apply().
+     * @return Action applying the command to a session.
+     *
+     * @throws ReplayException if argument is missing or invalid.
+     */
+    public Consumer<ReplaySession> bind(String argument) {
+        return recorded(argument, null);
+    }
+
+    /**
+     * Parse and validate command argument once, to apply the command to sessions together. START
+     * aligns all sessions to the same clock origin, see ReplaySession.start(long).
+     *
+     * @param argument Command argument, see apply().
+     * @param originMillis Clock origin shared by the sessions, epoch millis.
+     * @return Action applying the command to a session.
+     *
+     * @throws ReplayException if argument is missing or invalid.
+     */
+    public Consumer<ReplaySession> bind(String argument, long originMillis) {
+        return recorded(argument, originMillis);
+    }
+
+    // Action recorded as a JFR event when enabled
+    private Consumer<ReplaySession> recorded(String argument, Long originMillis) {
+        Consumer<ReplaySession> action = action(argument, originMillis);
+        return session -> ControlCommandEvent.record(session.sessionId(), name(), argument,
+                () -> action.accept(session));
+    }
+
+    // Origin null => START from now
+    private Consumer<ReplaySession> action(String argument, Long originMillis) {
+        return switch (this) {
+            case START -> originMillis == null ? ReplaySession::start
+                    : session -> session.start(originMillis);
+            case STOP -> ReplaySession::stop;
+            case REWIND -> ReplaySession::rewind;
+            case JUMP -> {
+                int eventId = positiveInt(argument);
+                yield session -> session.jumpToEvent(eventId);
+            }
+            case FORWARD -> {
+                int skipCount = positiveInt(argument);
+                yield session -> session.forward(skipCount);
+            }
+            case SPEED -> {
+                double speed = positiveDouble(argument);
+                yield session -> session.replaySpeed(speed);
+            }
+            case SEEK -> {
+                String time = requireArgument(argument);
+                long millis = parseLong(time);
+                if (time.startsWith("+") || time.startsWith("-"))
+                    yield session -> session.seekRelative(millis);
+                yield session -> session.seek(millis);
+            }
+            case GAP -> {
+                long maxGapMillis = parseLong(requireArgument(argument));
+                yield session -> session.gapCompression(maxGapMillis);
+            }
+            case LOOP -> {
+                String mode = requireArgument(argument).toLowerCase();
+                if (!List.of("on", "off", "shift").contains(mode))
+                    throw new ReplayException(String.format(
+                            "%s requires argument on, off or shift, got: %s", this, argument));
+                yield session -> session.loop(!mode.equals("off"), mode.equals("shift"));
+            }
+        };
+    }
+
+    private long parseLong(String argument) {
+        try {
+            return Long.parseLong(argument);
+        }
+        catch (NumberFormatException e) {
+            throw new ReplayException(
+                    String.format("%s requires an integer argument, got: %s", this, argument));
+        }
+    }
+
+    private int positiveInt(String argument) {
+        try {
+            int value = Integer.parseInt(requireArgument(argument));
+            if (value > 0)
+                return value;
+        }
+        catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new ReplayException(
+                String.format("%s requires a positive integer argument, got: %s", this, argument));
+    }
+
+    private double positiveDouble(String argument) {
+        try {
+            double value = Double.parseDouble(requireArgument(argument));
+            if (value > 0.0 && Double.isFinite(value))
+                return value;
+        }
+        catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new ReplayException(
+                String.format("%s requires a positive number argument, got: %s", this, argument));
+    }
+
+    private String requireArgument(String argument) {
+        if (argument == null || argument.isBlank())
+            throw new ReplayException(String.format("%s requires an argument", this));
+        return argument.trim();
+    }
+}
@@ -2,31 +2,59 @@ package com.pragma.demo.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.ApplicationContext;
-import org.springframework.core.io.ResourceLoader;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import com.google.common.cache.Cache;
+import com.pragma.demo.jfr.ControlCommandEvent;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.models.LatencyReport;
+import com.pragma.demo.models.LoopStatus;
 import com.pragma.demo.models.MarketDataEvent;
-import com.pragma.demo.services.data.CSVReaderService;
-import jakarta.annotation.PostConstruct;
+import com.pragma.demo.models.ReplayEnvelope;
+import com.pragma.demo.models.SessionCheckpoint;
+import com.pragma.demo.models.SessionStats;
+import com.pragma.demo.services.clock.ReplayClock;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import reactor.core.scheduler.Schedulers;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.TimeZone;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 
 /**
  * MarketDataService - manages replay sessions, starts, stops, rewinds, jumps to events, sets replay
  * speed, and provides event stream for a given session. It uses MarketDataSessionImpl to manage
- * sessions. It reads and caches market data events from a CSV file at initialization - all sessions
- * see the exact same set of events and modifying the CSV file will not affect until the service is
- * restarted.
+ * sessions. Market data events are read from CSV files and cached by DatasetCatalog - all sessions
+ * on a dataset see the exact same set of events and modifying the CSV files will not affect them
+ * until the dataset is reloaded.
+ * 
+ * A dataset may hold per-symbol segments. Sessions created for a set of symbols replay the
+ * segments merged into a single time ordered stream.
+ * 
+ * Sessions can be created and controlled in bulk, e.g. for load tests. Bulk sessions may be
+ * created in a named group that can be controlled as a whole.
+ * 
+ * Optionally session cursors and settings are checkpointed to an append-only journal (see
+ * SessionJournal) and sessions are rebuilt from it on startup, so clients can reattach to their
+ * session ids after a restart and continue where they were. Groups are not journaled.
  * 
  * During replay of market data events, publishTimerMillis if used to to schedule publications -
  * e.g. if this set to 10 then events are published in 10 millisec publication windows. The
@@ -36,26 +64,40 @@ import java.util.UUID;
 @Service
 public class ReplayService {
 
-    private final CSVReaderService csvReader;
-    private List<MarketDataEvent> events;
-
     @Value("${app.market.replay.publishTimerMillis}")
     private long publishTimerMillis;
 
-    @Value("${app.market.replay.data_file}")
-    private String dataFile;
-
     @Autowired
-    private ResourceLoader resourceLoader;
+    private DatasetCatalog catalog;
 
     @Autowired
     private Cache<String, ReplaySession> cache;
 
+    @Value("${app.market.replay.bulk.maxSessions}")
+    private int maxBulkSessions;
+
     @Autowired
-    public ReplayService(ApplicationContext context,
-            @Value("${app.csvReader}") String implementation) throws IOException {
-        this.csvReader = context.getBean(implementation, CSVReaderService.class);
-    }
+    private ReplayClock clock;
+
+    // Session groups, group name -> session ids. Expired sessions are pruned on lookup
+    private final Map<String, Set<String>> groups = new ConcurrentHashMap<>();
+
+    // Serializes bulk commands so that batches do not interleave
+    private final Object bulkLock = new Object();
+
+    // Session checkpoint journal, disabled if no journal file is configured
+    @Value("${app.market.replay.journal.file:}")
+    private String journalFile;
+
+    @Value("${app.market.replay.journal.checkpointMillis:1000}")
+    private long checkpointMillis;
+
+    private SessionJournal journal;
+    private Disposable checkpointer;
+
+    // Last checkpoint journaled per session, and sessions removed since the last checkpoint
+    private final Map<String, SessionCheckpoint> journaled = new ConcurrentHashMap<>();
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
 
     /**
      * Check if session exists.
@@ -73,15 +115,270 @@ public class ReplayService {
      * @return
      */
     public String createSession() {
-        String sessionId = UUID.randomUUID().toString();
-        cache.put(sessionId, new ReplaySessionImpl(sessionId, events, publishTimerMillis));
-        log.trace("create session: {}", sessionId);
-        return sessionId;
+        return createSession(null, List.of());
     }
 
     /**
-     * Start session.
+     * Create a new session for a set of symbols.
+     * 
+     * @param symbols Symbols to replay (case-insensitive). Null or empty for the default data file.
+     * @return Session id.
+     * 
+     * @throws ReplayException if a symbol is not found.
+     */
+    public String createSession(List<String> symbols) {
+        return createSession(null, symbols);
+    }
+
+    /**
+     * Create a new session on a dataset. The dataset is loaded if needed and held by the session
+     * until the session is removed.
+     * 
+     * @param dataset Dataset name, null for the default dataset.
+     * @param symbols Symbols to replay (case-insensitive). Null or empty for the dataset data file.
+     * @return Session id.
+     * 
+     * @throws ReplayException if dataset or a symbol is not found.
+     */
+    public String createSession(String dataset, List<String> symbols) {
+        ReplaySessionImpl session = newSession(UUID.randomUUID().toString(), dataset, symbols);
+        cache.put(session.sessionId(), session);
+        return session.sessionId();
+    }
+
+    private ReplaySessionImpl newSession(String sessionId, String dataset, List<String> symbols) {
+        Dataset data = catalog.acquire(dataset);
+        List<EventStore> segments;
+        try {
+            segments = data.segments(symbols);
+        }
+        catch (ReplayException e) {
+            catalog.release(data);
+            log.trace(e.getMessage());
+            throw e;
+        }
+
+        ReplaySessionImpl session =
+                new ReplaySessionImpl(sessionId, segments, publishTimerMillis, clock);
+        session.origin(dataset, symbols);
+        // Terminated sessions stay cached until removed or expired, the dataset is released as
+        // soon as the session terminates so a retired version is not kept for the cache lifetime
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true))
+                catalog.release(data);
+        };
+        session.onTerminate(release);
+        session.onClose(() -> {
+            release.run(); // backstop, no-op if already released
+            journaled.remove(sessionId);
+            if (journal != null)
+                removed.add(sessionId); // tombstone on next checkpoint
+        });
+        log.trace("create session: {}, dataset: {}, symbols: {}", sessionId, data.name(), symbols);
+        return session;
+    }
+
+    /**
+     * Create sessions in bulk. All sessions are created or none - sessions already created are
+     * removed if one fails.
+     * 
+     * @param count Number of sessions, 1 to maxSessions.
+     * @param dataset Dataset name, null for the default dataset.
+     * @param symbols Symbols to replay (case-insensitive). Null or empty for the dataset data file.
+     * @param group Group to add the sessions to, null for none.
+     * @return Session ids.
+     * 
+     * @throws ReplayException if count is out of range or dataset or a symbol is not found.
+     */
+    public List<String> createSessions(int count, String dataset, List<String> symbols,
+            String group) {
+        if (count < 1 || count > maxBulkSessions) {
+            String msg = String.format("session count must be 1 to %d, got: %d", maxBulkSessions,
+                    count);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+        if (group != null && group.isBlank()) {
+            String msg = "group name must not be blank";
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+
+        List<String> sessionIds = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++)
+                sessionIds.add(createSession(dataset, symbols));
+        }
+        catch (ReplayException e) {
+            sessionIds.forEach(this::removeSession);
+            throw e;
+        }
+        if (group != null)
+            groups.computeIfAbsent(group, g -> ConcurrentHashMap.newKeySet()).addAll(sessionIds);
+        log.debug("created {} sessions, dataset: {}, group: {}", count, dataset, group);
+        return sessionIds;
+    }
+
+    /**
+     * Get session ids of group. Sessions that have been removed are dropped from the group.
+     * 
+     * @param group Group name.
+     * @return Session ids.
+     * 
+     * @throws ReplayException if group is not found or has no sessions left.
+     */
+    public List<String> group(String group) {
+        Set<String> members = groups.get(group);
+        if (members != null) {
+            members.removeIf(sessionId -> !isSession(sessionId));
+            if (members.isEmpty())
+                groups.remove(group, members);
+        }
+        if (members == null || members.isEmpty()) {
+            String msg = String.format("group not found: %s", group);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+        return List.copyOf(members);
+    }
+
+    /**
+     * Apply command to sessions. The batch is validated as a whole before any session is touched -
+     * if a session is not found or terminated or the argument is invalid nothing is applied.
+     * Failures that only show when a session applies the command (e.g. event id not in session)
+     * are reported per session.
+     *
+     * Batches are applied one at a time, so two batches never interleave. A batch is not isolated
+     * from everything else though - single-session commands and the publishing loops of running
+     * sessions may see it half applied. Sessions started by one batch share a clock origin, so
+     * they publish in step, see ReplaySession.start(long).
+     * 
+     * @param sessionIds Session ids.
+     * @param command Command.
+     * @param argument Command argument, see ReplayCommand.apply().
+     * @return Reply per session, in order of session ids.
+     * 
+     * @throws ReplayException if batch is invalid.
+     */
+    public List<ControlReply> control(Collection<String> sessionIds, ReplayCommand command,
+            String argument) {
+        return control(sessionIds, command, argument, 0);
+    }
+
+    /**
+     * Apply command to sessions at a wall-clock instant, e.g. start a group of sessions together.
+     * The batch is validated immediately, see control(). Commands scheduled in the past are
+     * applied immediately. When due, the batch is applied as one task - sessions are started one
+     * after another, on a clock origin taken when the task runs.
      * 
+     * @param sessionIds Session ids.
+     * @param command Command.
+     * @param argument Command argument, see ReplayCommand.apply().
+     * @param epochMillis Wall-clock time to apply command at.
+     * @return Reply per session, in order of session ids.
+     * 
+     * @throws ReplayException if batch is invalid.
+     */
+    public List<ControlReply> control(Collection<String> sessionIds, ReplayCommand command,
+            String argument, long epochMillis) {
+        Map<String, ReplaySession> sessions = validate(sessionIds, command);
+        command.bind(argument); // validate argument
+
+        long delay = epochMillis - System.currentTimeMillis();
+        if (delay <= 0)
+            return apply(sessions, command, argument);
+
+        Schedulers.parallel().schedule(() -> apply(sessions, command, argument), delay,
+                TimeUnit.MILLISECONDS);
+        log.debug("scheduled {} for {} sessions in {} millis", command, sessions.size(), delay);
+        List<ControlReply> replies = new ArrayList<>(sessions.size());
+        sessions.keySet().forEach(sessionId -> replies.add(ControlReply.ok(command.name(),
+                String.format("%s scheduled at %d", sessionId, epochMillis))));
+        return replies;
+    }
+
+    private Map<String, ReplaySession> validate(Collection<String> sessionIds,
+            ReplayCommand command) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            String msg = "no sessions";
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+        Map<String, ReplaySession> sessions = new LinkedHashMap<>();
+        for (String sessionId : sessionIds) {
+            ReplaySession session = session(sessionId);
+            if (session.isTerminated()) {
+                String msg = String.format("cannot %s terminated session: %s",
+                        command.name().toLowerCase(), sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            sessions.put(sessionId, session);
+        }
+        return sessions;
+    }
+
+    private List<ControlReply> apply(Map<String, ReplaySession> sessions, ReplayCommand command,
+            String argument) {
+        List<ControlReply> replies = new ArrayList<>(sessions.size());
+        synchronized (bulkLock) {
+            // One origin for the batch - sessions started one after another still tick in step
+            Consumer<ReplaySession> action = command.bind(argument, clock.nowMillis());
+            sessions.forEach((sessionId, session) -> {
+                try {
+                    action.accept(session);
+                    replies.add(ControlReply.ok(command.name(), sessionId));
+                }
+                catch (ReplayException e) {
+                    log.trace("{} failed for session: {}, {}", command, sessionId, e.getMessage());
+                    replies.add(ControlReply.error(command.name(),
+                            String.format("%s: %s", sessionId, e.getMessage())));
+                }
+            });
+        }
+        return replies;
+    }
+
+    /**
+     * @return Symbols of the default dataset.
+     */
+    public List<String> symbols() {
+        return catalog.defaultDataset().symbols();
+    }
+
+    /**
+     * Get session. Transports that bind a session to a connection look it up once and then operate
+     * on it directly.
+     *
+     * @param sessionId Session id.
+     * @return Session.
+     *
+     * @throws ReplayException if session is not found.
+     */
+    public ReplaySession session(String sessionId) {
+        ReplaySession session = cache.getIfPresent(sessionId);
+        if (session == null) {
+            String msg = String.format("session not found: %s", sessionId);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+        return session;
+    }
+
+    /**
+     * Remove session. No-op if session is not found.
+     *
+     * @param sessionId Session id.
+     */
+    public void removeSession(String sessionId) {
+        log.trace("remove session: {}", sessionId);
+        cache.invalidate(sessionId);
+    }
+
+    /**
+     * Start session.
+     *
      * @param sessionId Session id.
      */
     public void start(String sessionId) {
@@ -92,7 +389,7 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.start();
+            ControlCommandEvent.record(sessionId, "START", null, s::start);
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -113,7 +410,7 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.stop();
+            ControlCommandEvent.record(sessionId, "STOP", null, s::stop);
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -134,7 +431,7 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.rewind();
+            ControlCommandEvent.record(sessionId, "REWIND", null, s::rewind);
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -157,7 +454,7 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.jumpToEvent(eventId);
+            ControlCommandEvent.record(sessionId, "JUMP", eventId, () -> s.jumpToEvent(eventId));
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -173,7 +470,53 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.forward(skipCount);
+            ControlCommandEvent.record(sessionId, "FORWARD", skipCount,
+                    () -> s.forward(skipCount));
+        }, () -> {
+            String msg = String.format("session not found: %s", sessionId);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        });
+    }
+
+    /**
+     * Seek to market time.
+     * 
+     * @param sessionId Session id.
+     * @param epochMillis Market time (epoch millis).
+     */
+    public void seek(String sessionId, long epochMillis) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        session.ifPresentOrElse(s -> {
+            if (s.isTerminated()) {
+                String msg = String.format("cannot seek terminated session: %s", sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            ControlCommandEvent.record(sessionId, "SEEK", epochMillis, () -> s.seek(epochMillis));
+        }, () -> {
+            String msg = String.format("session not found: %s", sessionId);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        });
+    }
+
+    /**
+     * Seek relative to session replay clock.
+     * 
+     * @param sessionId Session id.
+     * @param deltaMillis Milliseconds to move replay clock by, negative to seek backwards.
+     */
+    public void seekRelative(String sessionId, long deltaMillis) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        session.ifPresentOrElse(s -> {
+            if (s.isTerminated()) {
+                String msg = String.format("cannot seek terminated session: %s", sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            ControlCommandEvent.record(sessionId, "SEEK", deltaMillis,
+                    () -> s.seekRelative(deltaMillis));
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -196,7 +539,32 @@ public class ReplayService {
                 log.trace(msg);
                 throw new ReplayException(msg);
             }
-            s.replaySpeed(speed);
+            ControlCommandEvent.record(sessionId, "SPEED", speed, () -> s.replaySpeed(speed));
+        }, () -> {
+            String msg = String.format("session not found: %s", sessionId);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        });
+    }
+
+    /**
+     * Set session gap compression.
+     * 
+     * @param sessionId Session id.
+     * @param maxGapMillis Max gap in market millis, 0 to jump straight to next event, negative to
+     *        disable.
+     */
+    public void gapCompression(String sessionId, long maxGapMillis) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        session.ifPresentOrElse(s -> {
+            if (s.isTerminated()) {
+                String msg = String.format("cannot set max gap for terminated session: %s",
+                        sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            ControlCommandEvent.record(sessionId, "GAP", maxGapMillis,
+                    () -> s.gapCompression(maxGapMillis));
         }, () -> {
             String msg = String.format("session not found: %s", sessionId);
             log.trace(msg);
@@ -204,6 +572,43 @@ public class ReplayService {
         });
     }
 
+    /**
+     * Set session loop mode.
+     * 
+     * @param sessionId Session id.
+     * @param enabled True to wrap to the first event at the end of the data instead of terminating.
+     * @param shiftTimestamps True to shift event timestamps by the data span on every loop.
+     */
+    public void loop(String sessionId, boolean enabled, boolean shiftTimestamps) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        session.ifPresentOrElse(s -> {
+            if (s.isTerminated()) {
+                String msg = String.format("cannot set loop mode for terminated session: %s",
+                        sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            ControlCommandEvent.record(sessionId, "LOOP", enabled,
+                    () -> s.loop(enabled, shiftTimestamps));
+        }, () -> {
+            String msg = String.format("session not found: %s", sessionId);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        });
+    }
+
+    /**
+     * Get session loop mode and counters.
+     * 
+     * @param sessionId Session id.
+     * @return Loop status.
+     * 
+     * @throws ReplayException if session is not found.
+     */
+    public LoopStatus loopStatus(String sessionId) {
+        return session(sessionId).loopStatus();
+    }
+
     /**
      * Subscribe to session event stream.
      * 
@@ -223,21 +628,214 @@ public class ReplayService {
         return Flux.empty();
     }
 
+    /**
+     * Subscribe to session event stream in envelope mode, see ReplaySession.subscribeEnvelopes().
+     * 
+     * @param sessionId Session id.
+     * @param lastEventId Id of the last event received by the subscriber, null for a new
+     *        subscription.
+     * @return Session envelope flux.
+     */
+    public Flux<ReplayEnvelope> subscribeEnvelopes(String sessionId, Integer lastEventId) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        if (session.isPresent()) {
+            if (session.get().isTerminated()) {
+                String msg = String.format("cannot subscribe to terminated session: %s", sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            return lastEventId == null ? session.get().subscribeEnvelopes()
+                    : session.get().resumeEnvelopes(lastEventId);
+        }
+        return Flux.empty();
+    }
+
+    /**
+     * Get session latency.
+     * 
+     * @param sessionId Session id.
+     * @return Latency reports per stage, micros.
+     * 
+     * @throws ReplayException if session is not found.
+     */
+    public List<LatencyReport> latency(String sessionId) {
+        return session(sessionId).latency();
+    }
+
+    /**
+     * Stream statistics of all sessions, one sample of every session per period. Samples are taken
+     * from session counters, see ReplaySession.stats(). The achieved rate of a session is the
+     * number of events it published since the previous sample, 0 in its first sample. Sampling
+     * does not count as session access, so it does not keep idle sessions from expiring.
+     * 
+     * @param periodMillis Sample period, millis.
+     * @return Samples, sessions ordered by id. First sample is taken on subscription.
+     * 
+     * @throws ReplayException if period is not positive.
+     */
+    public Flux<List<SessionStats>> stats(long periodMillis) {
+        if (periodMillis < 1) {
+            String msg = String.format("stats period must be positive, got: %d", periodMillis);
+            log.trace(msg);
+            throw new ReplayException(msg);
+        }
+
+        return Flux.defer(() -> {
+            Map<String, SessionStats> previous = new HashMap<>(); // per subscription
+            return Flux.concat(Flux.just(-1L), clock.ticks(periodMillis))
+                    .map(tick -> sample(previous));
+        });
+    }
+
+    private List<SessionStats> sample(Map<String, SessionStats> previous) {
+        List<SessionStats> samples = new ArrayList<>();
+        for (ReplaySession session : cache.asMap().values()) {
+            SessionStats stats = session.stats();
+            SessionStats last = previous.get(stats.sessionId());
+            long elapsedMillis =
+                    last == null ? 0 : stats.wallClockMillis() - last.wallClockMillis();
+            if (elapsedMillis > 0)
+                stats = stats.withEventsPerSecond(
+                        (stats.eventsPublished() - last.eventsPublished()) * 1000.0
+                                / elapsedMillis);
+            samples.add(stats);
+        }
+        samples.sort(Comparator.comparing(SessionStats::sessionId));
+
+        previous.clear();
+        samples.forEach(stats -> previous.put(stats.sessionId(), stats));
+        return samples;
+    }
+
+    /**
+     * Subscribe to session analytics series.
+     * 
+     * @param sessionId Session id.
+     * @param series Series name.
+     * @return Analytics point flux.
+     */
+    public Flux<AnalyticsPoint> subscribeAnalytics(String sessionId, String series) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        if (session.isPresent()) {
+            if (session.get().isTerminated()) {
+                String msg = String.format("cannot subscribe to terminated session: %s", sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            return session.get().subscribeAnalytics(series);
+        }
+        return Flux.empty();
+    }
+
+    /**
+     * Resume session event stream after a dropped subscription, continuing after the last event
+     * the subscriber received.
+     * 
+     * @param sessionId Session id.
+     * @param lastEventId Id of the last event received by the subscriber.
+     * @return Session event flux.
+     */
+    public Flux<MarketDataEvent> resume(String sessionId, int lastEventId) {
+        Optional<ReplaySession> session = Optional.ofNullable(cache.getIfPresent(sessionId));
+        if (session.isPresent()) {
+            if (session.get().isTerminated()) {
+                String msg = String.format("cannot resume terminated session: %s", sessionId);
+                log.trace(msg);
+                throw new ReplayException(msg);
+            }
+            return session.get().resume(lastEventId);
+        }
+        return Flux.empty();
+    }
+
     @PostConstruct
     public void init() {
-        log.info("Data file: {}", dataFile);
+        if (journalFile == null || journalFile.isBlank())
+            return;
+
+        // Sessions are rebuilt on their datasets, the default dataset may still be loading
+        journal = new SessionJournal(Path.of(journalFile));
+        catalog.whenReady().thenRun(() -> {
+            restore();
+            Duration period = Duration.ofMillis(checkpointMillis);
+            checkpointer = Flux.interval(period, period, Schedulers.boundedElastic())
+                    .onBackpressureDrop().subscribe(tick -> checkpoint());
+        });
+    }
+
+    /**
+     * Rebuild sessions from the checkpoint journal. Sessions whose dataset or symbols are no
+     * longer available (e.g. an uploaded dataset) are dropped. The journal is then compacted to the
+     * restored sessions.
+     *
+     * @return Number of sessions restored.
+     */
+    synchronized int restore() {
+        Map<String, SessionCheckpoint> checkpoints = journal.read();
+        for (SessionCheckpoint checkpoint : checkpoints.values()) {
+            try {
+                ReplaySessionImpl session = newSession(checkpoint.sessionId(),
+                        checkpoint.dataset(), checkpoint.symbols());
+                session.restore(checkpoint);
+                cache.put(session.sessionId(), session);
+                journaled.put(session.sessionId(), checkpoint);
+            }
+            catch (ReplayException e) {
+                log.warn("Cannot restore session: {}, {}", checkpoint.sessionId(),
+                        e.getMessage());
+            }
+        }
+        journal.compact(journaled.values());
+        log.info("Restored {} of {} sessions from journal: {}", journaled.size(),
+                checkpoints.size(), journal);
+        return journaled.size();
+    }
+
+    /**
+     * Journal checkpoints of sessions that changed since their last checkpoint, and tombstones of
+     * sessions removed since. Terminated sessions are journaled as removed. The journal is
+     * compacted once superseded records outnumber live sessions.
+     */
+    synchronized void checkpoint() {
+        List<SessionCheckpoint> records = new ArrayList<>();
+        cache.cleanUp(); // run removal of expired sessions
+        for (ReplaySession session : cache.asMap().values()) {
+            if (!(session instanceof ReplaySessionImpl impl))
+                continue;
+            if (impl.isTerminated()) {
+                if (journaled.remove(impl.sessionId()) != null)
+                    records.add(SessionCheckpoint.removed(impl.sessionId()));
+                continue;
+            }
+            SessionCheckpoint checkpoint = impl.checkpoint();
+            if (!checkpoint.equals(journaled.get(impl.sessionId()))) {
+                journaled.put(impl.sessionId(), checkpoint);
+                records.add(checkpoint);
+            }
+        }
+        for (String sessionId : List.copyOf(removed)) {
+            removed.remove(sessionId);
+            journaled.remove(sessionId);
+            records.add(SessionCheckpoint.removed(sessionId));
+        }
+
         try {
-            Resource resource = resourceLoader.getResource("classpath:" + dataFile);
-            this.events = csvReader.readMarketDataEvents(resource);
-            
-            SimpleDateFormat sdf = new SimpleDateFormat("HH:mm:ss:SSS z");
-            sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-            log.info("Events: {}, First: {}, Last: {}", this.events.size(),
-                    sdf.format(new Date(this.events.get(0).timestamp())),
-                    sdf.format(new Date(this.events.get(this.events.size() - 1).timestamp())));
-        }
-        catch (IOException e) {
-            log.error(e.getMessage());
+            journal.append(records);
+            if (journal.records() > 2L * journaled.size() + 1024)
+                journal.compact(journaled.values());
+        }
+        catch (UncheckedIOException e) {
+            log.error("Failed to write journal: {}", journal, e);
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        if (journal == null)
+            return;
+        if (checkpointer != null)
+            checkpointer.dispose();
+        checkpoint(); // final checkpoint
+        journal.close();
+    }
 }
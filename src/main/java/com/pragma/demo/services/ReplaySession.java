@@ -1,12 +1,27 @@
 package com.pragma.demo.services;
 
 import java.util.Date;
+import java.util.List;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.LatencyReport;
+import com.pragma.demo.models.LoopStatus;
 import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.models.ReplayEnvelope;
+import com.pragma.demo.models.SessionStats;
 import reactor.core.publisher.Flux;
 
 /**
  * Replay session.
  *
+ * When a session is repositioned (jump, forward, seek) the subscriber first receives the prevailing
+ * market state - latest NBBO, latest Bid/Ask per exchange and last Trade - as snapshot events, then
+ * the events from the new position onward.
+ *
+ * A session replays one or more symbols. Multi-symbol sessions merge the per-symbol streams into a
+ * single time ordered stream.
+ *
+ * Sessions on live data (a data file that is still being written) do not terminate at the end of
+ * the data. Once caught up they wait, and publish appended events as they arrive.
  */
 public interface ReplaySession {
     /**
@@ -18,6 +33,18 @@ public interface ReplaySession {
      */
     void start();
 
+    /**
+     * Start session with its publishing ticks aligned to an origin shared with other sessions, e.g.
+     * a group started together. The session publishes as if started at the origin - ticks missed
+     * by starting late are caught up - so sessions started on the same origin at the same position
+     * are at the same replay timestamp on every tick. No-op for running sessions.
+     *
+     * @param originMillis Origin, time of the session clock in epoch millis.
+     *
+     * @throws ReplayException if session is terminated.
+     */
+    void start(long originMillis);
+
     /**
      * Stop session. Subscriber, if any, to session event stream will stop receiving events.
      * 
@@ -41,12 +68,25 @@ public interface ReplaySession {
      */
     void replaySpeed(double speed);
 
+    /**
+     * Set gap compression. Idle stretches between consecutive events longer than maxGapMillis of
+     * market time are compressed to maxGapMillis, so long replays do not spend time ticking through
+     * empty windows. Compression is applied in market time - at replay speed S an idle stretch
+     * lasts at most maxGapMillis / S of wall time.
+     *
+     * @param maxGapMillis Max gap in market millis. 0 jumps straight to the next event, negative
+     *        disables gap compression (default).
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    void gapCompression(long maxGapMillis);
+
     /**
      * Jump to event. No-op if eventId is not found. No-op for terminated streams.
      * 
      * @param eventId
      * 
-     * @throws ReplayException if session is terminated.
+     * @throws ReplayException if session is terminated or has multiple symbols.
      */
     void jumpToEvent(int eventId);
 
@@ -61,7 +101,47 @@ public interface ReplaySession {
     void forward(int numEvents);
 
     /**
-     * Subscribe to session event stream. No-op for terminated streams.
+     * Seek to market time. Session is positioned on the first event at or after epochMillis, and
+     * the replay clock is set to that event's timestamp. Seeking past the last event behaves like
+     * forwarding past the end of event stream.
+     * 
+     * @param epochMillis Market time (epoch millis).
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    void seek(long epochMillis);
+
+    /**
+     * Seek relative to the current replay clock. Negative values seek backwards.
+     * 
+     * @param deltaMillis Milliseconds to move the replay clock by.
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    void seekRelative(long deltaMillis);
+
+    /**
+     * Set loop mode. A looping session wraps to the first event when it reaches the end of the data
+     * and continues without a gap on the same subscription, instead of terminating. Optionally
+     * event timestamps are shifted by the span of the data on every loop, so that time keeps
+     * increasing across loops. Rewind resets the shift. No effect on live data, which does not end.
+     * 
+     * @param enabled True to loop.
+     * @param shiftTimestamps True to shift timestamps on every loop.
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    void loop(boolean enabled, boolean shiftTimestamps);
+
+    /**
+     * @return Loop mode and cumulative loop and event counters.
+     */
+    LoopStatus loopStatus();
+
+    /**
+     * Subscribe to session event stream. No-op for terminated streams. If the previous subscriber
+     * went away the session reattaches to the new subscriber and continues from its current
+     * position.
      * 
      * @return Session event flux.
      * 
@@ -69,6 +149,96 @@ public interface ReplaySession {
      */
     Flux<MarketDataEvent> subscribe();
 
+    /**
+     * Subscribe to session event stream with demand pacing. Events are released only against
+     * outstanding subscriber demand (request(n)); while demand is exhausted the replay clock is held.
+     * A slow subscriber therefore slows down the replay instead of events queueing on the server.
+     * 
+     * @return Session event flux.
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    Flux<MarketDataEvent> subscribePaced();
+
+    /**
+     * Subscribe to session event stream in envelope mode - each event is wrapped with its scheduled,
+     * emit and send times, see ReplayEnvelope.
+     * 
+     * @return Session envelope flux.
+     * 
+     * @throws ReplayException if session is terminated.
+     */
+    Flux<ReplayEnvelope> subscribeEnvelopes();
+
+    /**
+     * Subscribe to a derived analytics series (see MarketAnalytics). Points are published in step
+     * with the session event stream - they follow the session replay clock, speed and
+     * repositioning. Series may have multiple subscribers.
+     * 
+     * @param series Series name, e.g. bars-1s, bars-1m, vwap, spread.
+     * @return Analytics point flux.
+     * 
+     * @throws ReplayException if session is terminated, has multiple symbols or series is
+     *         unknown.
+     */
+    Flux<AnalyticsPoint> subscribeAnalytics(String series);
+
+    /**
+     * Resume session event stream after a dropped subscription. The current subscriber, if any, is
+     * replaced and streaming continues with the event following lastEventId. A session that was
+     * running when its subscriber went away keeps running.
+     * 
+     * Event ids are only unique per symbol, so multi-symbol sessions cannot resume after an event
+     * id, see isResumable(). Subscribe again instead, which continues from the current position.
+     * 
+     * @param lastEventId Id of the last event received by the subscriber.
+     * @return Session event flux.
+     * 
+     * @throws ReplayException if session is terminated or not resumable, or lastEventId is not
+     *         found.
+     */
+    Flux<MarketDataEvent> resume(int lastEventId);
+
+    /**
+     * @return True if the session can resume after an event id, i.e. event ids identify a stream
+     *         position. False for multi-symbol sessions - event ids are only unique per symbol.
+     */
+    boolean isResumable();
+
+    /**
+     * Resume session event stream in envelope mode, see resume() and subscribeEnvelopes().
+     * 
+     * @param lastEventId Id of the last event received by the subscriber.
+     * @return Session envelope flux.
+     * 
+     * @throws ReplayException if session is terminated or not resumable, or lastEventId is not
+     *         found.
+     */
+    Flux<ReplayEnvelope> resumeEnvelopes(int lastEventId);
+
+    /**
+     * Session latency since creation, per stage: emit (scheduled to emit - publishing lateness) and
+     * send (emit to send - time in the session buffer).
+     * 
+     * @return Latency reports, micros.
+     */
+    List<LatencyReport> latency();
+
+    /**
+     * Session statistics sample. Read from counters kept by the session without locking, so it
+     * can be sampled while the session is publishing. The achieved rate is left 0, it needs two
+     * samples.
+     * 
+     * @return Session statistics.
+     */
+    SessionStats stats();
+
+    /**
+     * Close session: stop, complete subscriber streams and release session resources. Closed
+     * sessions are terminated. No-op if already closed.
+     */
+    void close();
+
     /**
      * Get session creation timestamp.
      * 
@@ -1,41 +1,52 @@
 package com.pragma.demo.services;
 
+import reactor.core.Disposable;
+import reactor.core.Scannable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Sinks;
 import reactor.core.publisher.Sinks.EmitResult;
-import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 import java.time.Duration;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
 import org.apache.commons.lang3.time.DurationFormatUtils;
+import com.pragma.demo.jfr.EmitFailureEvent;
+import com.pragma.demo.jfr.ReplayTickEvent;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.LatencyReport;
+import com.pragma.demo.models.LoopStatus;
 import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.models.ReplayEnvelope;
+import com.pragma.demo.models.SessionCheckpoint;
+import com.pragma.demo.models.SessionStats;
+import com.pragma.demo.services.clock.ReplayClock;
+import com.pragma.demo.services.clock.WallReplayClock;
 
 @Slf4j
 public class ReplaySessionImpl implements ReplaySession {
 
-    private final Scheduler SCHEDULER = Schedulers.boundedElastic();
-
     private final String sessionId;
     private final Date created = new Date(); // session creation timestamp
     private final long publishTimerMillis; // determines how often events are published
+    private final ReplayClock clock; // drives the publishing loop
     private double replayClockMillis; // double because we need to multiply by replaySpeed and allow
                                       // clock to in sub-millisec increments
 
-    // Event stream
-    private final List<MarketDataEvent> events;
-    private final Map<Integer, Integer> eventIndexById = new HashMap<>(); // for fast lookup during jumpToEvent()
+    // Event segments (one per symbol), shared with all other sessions on the same data
+    private final List<EventStore> segments;
 
-    // Current index into event stream
-    private final AtomicInteger currentIndex = new AtomicInteger(0);
+    // Current position in the (merged) event stream
+    private final EventCursor cursor;
 
     // Is session in running state. Stopped session does not publish events
     private AtomicBoolean isRunning = new AtomicBoolean(false);
@@ -43,92 +54,338 @@ public class ReplaySessionImpl implements ReplaySession {
     // I ssession terminated. Terminated session cannot be restarted.
     private AtomicBoolean isTerminated = new AtomicBoolean(false);
 
+    // Publishing loop of running session
+    private final AtomicReference<Disposable> ticker = new AtomicReference<>();
+
 
     // Replay speed. Speed: 1.0 => normal speed, 2.0 => double normal speed, 0.5 => half normal
     // speed
     private AtomicReference<Double> replaySpeed = new AtomicReference<>(1.0);
 
-    private final Sinks.Many<MarketDataEvent> eventSink;
-    private final Flux<MarketDataEvent> eventFlux;
+    // Gap compression. Idle stretches between events longer than maxGapMillis (market time) are
+    // compressed to maxGapMillis. 0 => jump straight to next event, negative => disabled
+    private final AtomicLong maxGapMillis = new AtomicLong(-1);
+
+    // A unicast sink takes a single subscriber, so when a subscriber goes away (e.g. dropped
+    // connection) the session is detached and a fresh sink is attached for the next subscriber
+    private final AtomicReference<Sinks.Many<ReplayEnvelope>> eventSink = new AtomicReference<>();
+    private volatile Flux<ReplayEnvelope> eventFlux;
+    private final AtomicBoolean isDetached = new AtomicBoolean(false);
+    private final AtomicBoolean resumeOnAttach = new AtomicBoolean(false); // was running on detach
+
+    // Demand pacing. When paced, events are only released against outstanding subscriber demand
+    // and the replay clock is held while demand is exhausted
+    private final AtomicBoolean isPaced = new AtomicBoolean(false);
+    private final AtomicLong demand = new AtomicLong(0);
+
+    // Loop mode. At the end of the data the session wraps to the first event, optionally shifting
+    // timestamps by the data span per loop. Counters are cumulative over the session lifetime
+    private volatile boolean looping;
+    private volatile boolean shiftTimestamps;
+    private volatile long timeShiftMillis;
+    private final AtomicLong loops = new AtomicLong(0);
+    private final AtomicLong eventsPublished = new AtomicLong(0);
+
+    // Latency of the publishing (scheduled -> emit) and buffering (emit -> send) stages, micros
+    private final Histogram emitLatency = new ConcurrentHistogram(2);
+    private final Histogram sendLatency = new ConcurrentHistogram(2);
+
+    // Initial image (market state snapshot) to send after reposition
+    private final AtomicBoolean snapshotPending = new AtomicBoolean(false);
+
+    // Reached the end of live data that is still being appended to. The replay clock catches up
+    // with the next appended event so it is published without delay
+    private volatile boolean caughtUp;
+
+    // Closed sessions have released their resources (e.g. dataset reference)
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    private volatile Runnable onClose;
+    private volatile Runnable onTerminate;
+
+    // Dataset and symbols the session was created on, recorded in checkpoints
+    private volatile String dataset;
+    private volatile List<String> symbols = List.of();
+
+    // Analytics series subscribed on this session, published in step with the event stream
+    private final Map<String, AnalyticsChannel> channels = new ConcurrentHashMap<>();
+
+    // The sink does not cancel when its last subscriber leaves, so a channel outlives its
+    // subscribers. A channel left without subscribers is replaced by the next subscription, which
+    // then starts at the current position instead of draining points buffered meanwhile
+    private static class AnalyticsChannel {
+        private final List<AnalyticsPoint> points;
+        private final AtomicInteger cursor;
+        private final AtomicInteger subscribers = new AtomicInteger(0);
+        private final Sinks.Many<AnalyticsPoint> sink =
+                Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
+
+        AnalyticsChannel(List<AnalyticsPoint> points, int cursor) {
+            this.points = points;
+            this.cursor = new AtomicInteger(cursor);
+        }
+    }
 
     public ReplaySessionImpl(String sessionId, List<MarketDataEvent> events,
             long publishTimerMillis) {
-        this.sessionId = sessionId;
+        this(sessionId, new EventStore(events), publishTimerMillis);
+    }
 
-        this.events = events;
-        IntStream.range(0, events.size())   // create map of eventId to index
-                .forEach(idx -> eventIndexById.put(events.get(idx).id(), idx));
+    public ReplaySessionImpl(String sessionId, EventStore store, long publishTimerMillis) {
+        this(sessionId, store, publishTimerMillis, new WallReplayClock());
+    }
+
+    public ReplaySessionImpl(String sessionId, EventStore store, long publishTimerMillis,
+            ReplayClock clock) {
+        this(sessionId, List.of(store), publishTimerMillis, clock);
+    }
 
+    /**
+     * Create session over one or more segments. Several segments (e.g. one per symbol) are replayed
+     * as a single time ordered stream.
+     */
+    public ReplaySessionImpl(String sessionId, List<EventStore> segments, long publishTimerMillis,
+            ReplayClock clock) {
+        this.sessionId = sessionId;
+        this.segments = List.copyOf(segments);
+        this.cursor = segments.size() == 1 ? new StoreCursor(segments.get(0))
+                : new MergeCursor(this.segments);
         this.publishTimerMillis = publishTimerMillis;
+        this.clock = clock;
 
-        this.eventSink = Sinks.many().unicast().onBackpressureBuffer();
-        this.eventFlux = eventSink.asFlux().doOnComplete(() -> {
-            log.trace("Session: {} - event stream completed", sessionId);
-        }).doOnCancel(() -> {
-            log.trace("Session: {} - event stream cancelled", sessionId);
-        });
+        attach();
         doRewind();
     }
 
     @Override
     public void start() {
+        start(clock.ticks(publishTimerMillis), clock.nowMicros());
+    }
+
+    @Override
+    public void start(long originMillis) {
+        start(clock.ticks(publishTimerMillis, originMillis), originMillis * 1000);
+    }
+
+    // Publish on ticks, tick n is due at startMicros + (n + 1) * publishTimerMillis
+    private void start(Flux<Long> ticks, long startMicros) {
         if (isTerminated.get()) {
             throw new ReplayException("Session is already terminated: " + sessionId);
         }
+        if (!isRunning.compareAndSet(false, true)) {
+            log.trace("session already running: {}", sessionId);
+            return;
+        }
 
         log.trace("start session: {}, subscriber count: {}", sessionId,
-                eventSink.currentSubscriberCount());
-        long startMillis = System.currentTimeMillis();
-        isRunning.set(true);
-        Flux.interval(Duration.ofMillis(publishTimerMillis), SCHEDULER).takeWhile(
-                tick -> isRunning() && !isTerminated() && currentIndex.get() < events.size())
-                .subscribe(tick -> {
-                    // Publish all events with timestamp <= simulationClockMillis
-                    while (currentIndex.get() < events.size()
-                            && events.get(currentIndex.get()).timestamp() <= replayClockMillis) {
-                        MarketDataEvent event = events.get(currentIndex.getAndIncrement());
-                        EmitResult result = eventSink.tryEmitNext(event);
-                        if (result.isFailure()) {
-                            log.error("Failed to emit event: {}, session: {}, result: {}", event,
-                                    sessionId, result);
-                            switch (result)
-                            {
-                                case FAIL_TERMINATED:
-                                case FAIL_CANCELLED:
-                                    isRunning.set(false);
-                                    isTerminated.set(true);
-                                    break;
-                                default:
-                                    break;
-                            }
+                eventSink.get().currentSubscriberCount());
+        Disposable loop = ticks
+                .takeWhile(tick -> isRunning() && !isTerminated()
+                        && (cursor.position() < cursor.size() || cursor.isOpen()
+                                || (looping && cursor.size() > 0)))
+                .subscribe(tick -> tick(startMicros, tick));
+        Disposable previous = ticker.getAndSet(loop);
+        if (previous != null)
+            previous.dispose();
+    }
+
+    // Publish on tick, recorded as a JFR event when enabled
+    private void tick(long startMicros, long tick) {
+        long dueMicros = startMicros + (tick + 1) * publishTimerMillis * 1000;
+        ReplayTickEvent event = new ReplayTickEvent();
+        long latenessMillis = event.isEnabled() ? (clock.nowMicros() - dueMicros) / 1000 : 0;
+        int position = cursor.position();
+        event.begin();
+        publish(startMicros, dueMicros);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionId;
+            event.eventsReleased = Math.max(0, cursor.position() - position);
+            event.latenessMillis = latenessMillis;
+            event.replayClockMillis = (long) replayClockMillis;
+            event.commit();
+        }
+    }
+
+    // Publish events due on the replay clock. Tick was due at dueMicros
+    private void publish(long startMicros, long dueMicros) {
+        Sinks.Many<ReplayEnvelope> sink = eventSink.get();
+        boolean starved = false;
+
+        // Send initial image after reposition, ahead of the events at the new position
+        if (snapshotPending.getAndSet(false)) {
+            for (MarketDataEvent event : cursor.snapshot()) {
+                long emitMicros = clock.nowMicros();
+                EmitResult result = sink.tryEmitNext(
+                        new ReplayEnvelope(shifted(event), emitMicros, emitMicros, 0));
+                if (result.isFailure()) {
+                    EmitFailureEvent.record(sessionId, event.id(), true, result.name());
+                    log.trace("Failed to emit snapshot event: {}, session: {}, result: {}", event,
+                            sessionId, result);
+                    break;
+                }
+            }
+        }
+
+        // Publish all events with timestamp <= simulationClockMillis
+        int position;
+        MarketDataEvent event;
+        if (caughtUp && (event = cursor.peek()) != null) {
+            caughtUp = false;
+            replayClockMillis = Math.max(replayClockMillis, event.timestamp());
+        }
+        while ((event = cursor.peek()) != null && event.timestamp() <= replayClockMillis) {
+            if (isPaced.get() && !takeDemand()) {
+                starved = true;
+                break;
+            }
+            position = cursor.position();
+            long scheduledMicros = scheduledMicros(event, dueMicros);
+            long emitMicros = clock.nowMicros();
+            EmitResult result = sink.tryEmitNext(
+                    new ReplayEnvelope(shifted(event), scheduledMicros, emitMicros, 0));
+            if (result.isFailure()) {
+                EmitFailureEvent.record(sessionId, event.id(), false, result.name());
+                log.error("Failed to emit event: {}, session: {}, result: {}", event, sessionId,
+                        result);
+                switch (result)
+                {
+                    case FAIL_TERMINATED:
+                    case FAIL_CANCELLED:
+                        // Event was not delivered, keep it for the next subscriber
+                        if (result == EmitResult.FAIL_CANCELLED || sink != eventSink.get()) {
+                            detach(sink);
                         }
                         else {
-                            log.trace("replay event: {} on session: {}", event, sessionId);
+                            terminate();
                         }
-                    }
+                        return;
+                    default:
+                        break;
+                }
+            }
+            else {
+                eventsPublished.incrementAndGet();
+                emitLatency.recordValue(Math.max(0, emitMicros - scheduledMicros));
+                log.trace("replay event: {} on session: {}", event, sessionId);
+            }
+            cursor.advance(position);
+        }
 
-                    // Advance the simulation clock based on the publishing speed
-                    replayClockMillis += (replaySpeed.get() * publishTimerMillis);
+        publishAnalytics(false);
+        if (!starved && cursor.isOpen() && cursor.peek() == null)
+            caughtUp = true;
 
-                    if (currentIndex.get() >= events.size()) {
+        // Skip idle time in long gaps instead of ticking through an empty window
+        long maxGap = maxGapMillis.get();
+        if (maxGap >= 0 && !starved && (event = cursor.peek()) != null) {
+            if (event.timestamp() - replayClockMillis > maxGap)
+                replayClockMillis = event.timestamp() - maxGap;
+        }
 
-                        log.trace("Completing eventSink for session: {}", sessionId);
-                        eventSink.tryEmitComplete();
+        // Advance the simulation clock based on the publishing speed. A starved paced session
+        // holds the clock so the subscriber paces the replay
+        if (!starved)
+            replayClockMillis += (replaySpeed.get() * publishTimerMillis);
 
-                        log.trace("stop and terminate session: {}", sessionId);
-                        isRunning.set(false);
-                        isTerminated.set(true);
+        if (cursor.position() >= cursor.size() && !cursor.isOpen() && looping
+                && cursor.size() > 0) {
+            wrap();
+        }
+        else if (cursor.position() >= cursor.size() && !cursor.isOpen()) {
+
+            log.trace("Completing eventSink for session: {}", sessionId);
+            sink.tryEmitComplete();
+            publishAnalytics(true);
+            channels.values().forEach(channel -> channel.sink.tryEmitComplete());
+
+            log.trace("stop and terminate session: {}", sessionId);
+            terminate();
+
+            if (log.isTraceEnabled()) {
+                long startMillis = startMicros / 1000;
+                long endMillis = clock.nowMillis();
+                String fmtDuration = DurationFormatUtils.formatDuration(
+                        Duration.ofMillis(endMillis - startMillis).toMillis(), "H:mm:ss:SSS");
+                log.trace("Session: {}, started: {}, end: {}, duration: {}", sessionId,
+                        new Date(startMillis), new Date(endMillis), fmtDuration);
+            }
+        }
+    }
 
-                        if (log.isTraceEnabled()) {
-                            long endMillis = System.currentTimeMillis();
-                            String fmtDuration = DurationFormatUtils.formatDuration(
-                                    Duration.ofMillis(endMillis - startMillis).toMillis(),
-                                    "H:mm:ss:SSS");
-                            log.trace("Session: {}, started: {}, end: {}, duration: {}", sessionId,
-                                    new Date(startMillis), new Date(endMillis), fmtDuration);
-                        }
-                    }
-                });
+    // Stop for good, e.g. at the end of the data. The session stays cached until it is removed
+    private void terminate() {
+        isRunning.set(false);
+        isTerminated.set(true);
+        Runnable action = onTerminate;
+        if (action != null)
+            action.run();
+    }
+
+    // Loop mode: back to the first event without a gap. The replay clock moves back by the span of
+    // the data, so the first event is due right after the last one
+    private void wrap() {
+        long span = span();
+        cursor.seekPosition(0);
+        channels.values().forEach(channel -> channel.cursor.set(0));
+        replayClockMillis -= span;
+        if (shiftTimestamps)
+            timeShiftMillis += span;
+        long loop = loops.incrementAndGet();
+        log.trace("session: {} wrapped, loops: {}, time shift: {}", sessionId, loop,
+                timeShiftMillis);
+    }
+
+    // Time between first and last event
+    private long span() {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (EventStore segment : segments) {
+            if (!segment.isEmpty()) {
+                first = Math.min(first, segment.timestamp(0));
+                last = Math.max(last, segment.timestamp(segment.size() - 1));
+            }
+        }
+        return first <= last ? last - first : 0;
+    }
+
+    private MarketDataEvent shifted(MarketDataEvent event) {
+        long shift = timeShiftMillis;
+        return shift == 0 ? event : event.withTimestamp(event.timestamp() + shift);
+    }
+
+    // When the replay clock reached the event timestamp. The clock covers speed *
+    // publishTimerMillis of market time per tick, so an event lagging the clock by lag millis was
+    // due lag / speed before the tick. Events behind the last tick window (e.g. after a
+    // reposition) were due on the previous tick
+    private long scheduledMicros(MarketDataEvent event, long dueMicros) {
+        double lagMillis = (replayClockMillis - event.timestamp()) / replaySpeed.get();
+        long lagMicros = (long) (Math.min(Math.max(lagMillis, 0), publishTimerMillis) * 1000);
+        return dueMicros - lagMicros;
+    }
+
+    // Publish analytics points derived from events already published and due on the replay clock
+    private void publishAnalytics(boolean endOfStream) {
+        int position = cursor.position();
+        for (AnalyticsChannel channel : channels.values()) {
+            int cursor = channel.cursor.get();
+            while (cursor < channel.points.size()) {
+                AnalyticsPoint point = channel.points.get(cursor);
+                if (point.index() > position
+                        || (!endOfStream && point.timestamp() > replayClockMillis))
+                    break;
+                EmitResult result = channel.sink.tryEmitNext(point);
+                if (result.isFailure()) {
+                    // Point stays due and is retried on the next tick
+                    EmitFailureEvent.record(sessionId, point.series(), point.index(),
+                            result.name());
+                    log.trace("Failed to emit analytics point: {}, session: {}, result: {}",
+                            point, sessionId, result);
+                    break;
+                }
+                cursor++;
+            }
+            channel.cursor.set(cursor);
+        }
     }
 
     @Override
@@ -138,7 +395,15 @@ public class ReplaySessionImpl implements ReplaySession {
         }
 
         log.trace("stop session: {}", sessionId);
-        isRunning.set(false);
+        halt();
+    }
+
+    private boolean halt() {
+        boolean wasRunning = isRunning.getAndSet(false);
+        Disposable loop = ticker.getAndSet(null);
+        if (loop != null)
+            loop.dispose();
+        return wasRunning;
     }
 
     @Override
@@ -148,14 +413,18 @@ public class ReplaySessionImpl implements ReplaySession {
         }
 
         log.trace("rewind session: {}", sessionId);
+        snapshotPending.set(false); // no market state before first event
+        timeShiftMillis = 0;
         doRewind();
     }
 
     private void doRewind() {
-        currentIndex.set(0);
-        if (!events.isEmpty())
-            this.replayClockMillis = events.get(0).timestamp(); // Reset clock to first
-                                                                // event's
+        cursor.seekPosition(0);
+        caughtUp = false;
+        channels.values().forEach(channel -> channel.cursor.set(0));
+        MarketDataEvent first = cursor.peek();
+        if (first != null)
+            this.replayClockMillis = first.timestamp(); // Reset clock to first event's
         else
             this.replayClockMillis = 0;
     }
@@ -167,11 +436,11 @@ public class ReplaySessionImpl implements ReplaySession {
         }
 
         log.trace("jump to eventId: {}, session: {}", eventId, sessionId);
-        Integer idx = eventIndexById.get(eventId);
-        if (idx == null) {
-            throw new ReplayException(String.format("Invalid event ID:: {}", eventId));
+        int idx = singleSegment("jump to event").indexOf(eventId);
+        if (idx < 0) {
+            throw new ReplayException(String.format("Invalid event ID: %d", eventId));
         }
-        jumpToEventByIndex(idx);
+        reposition(idx);
     }
 
     @Override
@@ -181,20 +450,74 @@ public class ReplaySessionImpl implements ReplaySession {
         }
 
         log.trace("forward: {}, session: {}", skipCount, sessionId);
-        int targetIndex = currentIndex.get() + skipCount;
-        if (targetIndex >= events.size()) {
+        int targetIndex = cursor.position() + skipCount;
+        if (targetIndex >= cursor.size()) {
             log.trace("forward: {}, session: {} - reached end of events", skipCount, sessionId);
-            jumpToEventByIndex(events.size());
+            jumpToEventByIndex(cursor.size());
         }
         else {
-            jumpToEventByIndex(targetIndex);
+            reposition(targetIndex);
+        }
+    }
+
+    @Override
+    public void seek(long epochMillis) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
         }
+
+        log.trace("seek: {}, session: {}", epochMillis, sessionId);
+        cursor.seekTimestamp(epochMillis - timeShiftMillis); // current loop in loop mode
+        repositioned();
+    }
+
+    @Override
+    public void seekRelative(long deltaMillis) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("seek relative: {}, session: {}", deltaMillis, sessionId);
+        cursor.seekTimestamp((long) replayClockMillis + deltaMillis);
+        repositioned();
+    }
+
+    // Jump and send the prevailing market state at the new position
+    private void reposition(int index) {
+        jumpToEventByIndex(index);
+        snapshotPending.set(index > 0 && index < cursor.size());
     }
 
     private void jumpToEventByIndex(int index) {
-        currentIndex.set(index);
-        if (index < events.size())
-            replayClockMillis = events.get(index).timestamp();
+        cursor.seekPosition(index);
+        syncToCursor();
+    }
+
+    // Cursor moved by timestamp, send the prevailing market state at the new position
+    private void repositioned() {
+        syncToCursor();
+        int position = cursor.position();
+        snapshotPending.set(position > 0 && position < cursor.size());
+    }
+
+    // Move analytics cursors and replay clock to the cursor position
+    private void syncToCursor() {
+        int position = cursor.position();
+        caughtUp = false;
+        channels.forEach((name, channel) -> channel.cursor
+                .set(segments.get(0).analytics().firstAfter(name, position)));
+        MarketDataEvent next = cursor.peek();
+        if (next != null)
+            replayClockMillis = next.timestamp();
+    }
+
+    // Event ids and analytics are per segment, so some operations need a single segment session
+    private EventStore singleSegment(String operation) {
+        if (segments.size() != 1) {
+            throw new ReplayException(String.format(
+                    "Cannot %s on a multi-symbol session: %s", operation, sessionId));
+        }
+        return segments.get(0);
     }
 
     @Override
@@ -207,6 +530,34 @@ public class ReplaySessionImpl implements ReplaySession {
         this.replaySpeed.set(replaySpeed);
     }
 
+    @Override
+    public void gapCompression(long maxGapMillis) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("set max gap: {} on session: {}", maxGapMillis, sessionId);
+        this.maxGapMillis.set(maxGapMillis);
+    }
+
+    @Override
+    public void loop(boolean enabled, boolean shiftTimestamps) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("loop: {}, shift timestamps: {}, session: {}", enabled, shiftTimestamps,
+                sessionId);
+        this.shiftTimestamps = shiftTimestamps;
+        this.looping = enabled;
+    }
+
+    @Override
+    public LoopStatus loopStatus() {
+        return new LoopStatus(looping, shiftTimestamps, loops.get(), eventsPublished.get(),
+                timeShiftMillis);
+    }
+
     @Override
     public Flux<MarketDataEvent> subscribe() {
         if (isTerminated.get()) {
@@ -214,9 +565,279 @@ public class ReplaySessionImpl implements ReplaySession {
         }
 
         log.trace("subscribe to session: {}", sessionId);
+        isPaced.set(false);
+        return reattachIfDetached().map(this::unwrap);
+    }
+
+    @Override
+    public Flux<ReplayEnvelope> subscribeEnvelopes() {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("subscribe to session envelopes: {}", sessionId);
+        isPaced.set(false);
+        return reattachIfDetached().map(this::send);
+    }
+
+    @Override
+    public Flux<MarketDataEvent> subscribePaced() {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("subscribe paced to session: {}", sessionId);
+        isPaced.set(true);
+        return reattachIfDetached().map(this::unwrap).doOnRequest(this::addDemand);
+    }
+
+    @Override
+    public Flux<AnalyticsPoint> subscribeAnalytics(String series) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        log.trace("subscribe to analytics: {}, session: {}", series, sessionId);
+        MarketAnalytics analytics = singleSegment("subscribe to analytics").analytics();
+        AnalyticsChannel channel = channels.compute(series, (name, current) -> {
+            AnalyticsChannel next = current;
+            if (next == null || next.subscribers.get() == 0) {
+                if (current != null)
+                    current.sink.tryEmitComplete(); // no subscribers left
+                next = new AnalyticsChannel(analytics.series(name),
+                        analytics.firstAfter(name, cursor.position()));
+            }
+            next.subscribers.incrementAndGet(); // counted before the subscription happens
+            return next;
+        });
+        return channel.sink.asFlux().doFinally(signal -> channel.subscribers.decrementAndGet());
+    }
+
+    @Override
+    public Flux<MarketDataEvent> resume(int lastEventId) {
+        return doResume(lastEventId).map(this::unwrap);
+    }
+
+    @Override
+    public Flux<ReplayEnvelope> resumeEnvelopes(int lastEventId) {
+        return doResume(lastEventId).map(this::send);
+    }
+
+    private Flux<ReplayEnvelope> doResume(int lastEventId) {
+        if (isTerminated.get()) {
+            throw new ReplayException("Session is already terminated: " + sessionId);
+        }
+
+        // Event ids are only unique within a segment
+        if (!isResumable()) {
+            throw new ReplayException(String.format(
+                    "cannot resume multi-symbol session after event ID: %d, subscribe to continue "
+                            + "from the current position",
+                    lastEventId));
+        }
+        int idx = segments.get(0).indexOf(lastEventId);
+        if (idx < 0) {
+            throw new ReplayException(String.format("Invalid event ID: %d", lastEventId));
+        }
+        log.trace("resume session: {} after eventId: {}", sessionId, lastEventId);
+
+        // Replace the current subscriber even if it is still attached - the server may not have
+        // noticed the dropped connection yet
+        boolean wasRunning = halt() | resumeOnAttach.getAndSet(false);
+        isPaced.set(false);
+        attach();
+        jumpToEventByIndex(idx + 1);
+
+        if (idx + 1 >= cursor.size() && !cursor.isOpen() && !looping) {
+            log.trace("resume session: {} - all events already delivered", sessionId);
+            eventSink.get().tryEmitComplete();
+            terminate();
+        }
+        else if (wasRunning) {
+            start();
+        }
         return eventFlux;
     }
 
+    @Override
+    public boolean isResumable() {
+        return segments.size() == 1;
+    }
+
+    // Envelope taken from the session buffer by the transport
+    private ReplayEnvelope send(ReplayEnvelope envelope) {
+        long sendMicros = clock.nowMicros();
+        sendLatency.recordValue(Math.max(0, sendMicros - envelope.emitMicros()));
+        return envelope.sent(sendMicros);
+    }
+
+    private MarketDataEvent unwrap(ReplayEnvelope envelope) {
+        sendLatency.recordValue(Math.max(0, clock.nowMicros() - envelope.emitMicros()));
+        return envelope.event();
+    }
+
+    private Flux<ReplayEnvelope> reattachIfDetached() {
+        if (isDetached.get()) {
+            log.trace("reattach session: {}", sessionId);
+            attach();
+            if (resumeOnAttach.getAndSet(false))
+                start();
+        }
+        return eventFlux;
+    }
+
+    private void attach() {
+        Sinks.Many<ReplayEnvelope> sink = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<ReplayEnvelope> previous = eventSink.getAndSet(sink);
+        if (previous != null)
+            previous.tryEmitComplete();
+
+        demand.set(0);
+        eventFlux = sink.asFlux().doOnComplete(() -> {
+            log.trace("Session: {} - event stream completed", sessionId);
+        }).doOnCancel(() -> {
+            log.trace("Session: {} - event stream cancelled", sessionId);
+            detach(sink);
+        });
+        isDetached.set(false);
+    }
+
+    // Subscriber went away. Stop publishing and remember whether to resume on reattach
+    private void detach(Sinks.Many<ReplayEnvelope> sink) {
+        if (sink != eventSink.get()) {
+            return; // already replaced by a new subscriber
+        }
+        if (isDetached.compareAndSet(false, true)) {
+            log.trace("detach session: {}", sessionId);
+            resumeOnAttach.set(halt());
+        }
+    }
+
+    private void addDemand(long n) {
+        demand.accumulateAndGet(n, (current, requested) -> {
+            long sum = current + requested;
+            return sum < 0 ? Long.MAX_VALUE : sum; // cap at unbounded
+        });
+    }
+
+    private boolean takeDemand() {
+        long current;
+        do {
+            current = demand.get();
+            if (current == Long.MAX_VALUE)
+                return true;
+            if (current <= 0)
+                return false;
+        } while (!demand.compareAndSet(current, current - 1));
+        return true;
+    }
+
+    @Override
+    public List<LatencyReport> latency() {
+        return List.of(report("emit", emitLatency), report("send", sendLatency));
+    }
+
+    private static LatencyReport report(String stage, Histogram histogram) {
+        Histogram copy = histogram.copy();
+        return new LatencyReport(stage, copy.getTotalCount(), copy.getMean(),
+                copy.getValueAtPercentile(50), copy.getValueAtPercentile(90),
+                copy.getValueAtPercentile(99), copy.getValueAtPercentile(99.9), copy.getMaxValue());
+    }
+
+    @Override
+    public SessionStats stats() {
+        Sinks.Many<ReplayEnvelope> sink = eventSink.get();
+        Integer buffered = Scannable.from(sink).scan(Scannable.Attr.BUFFERED);
+        String state = isTerminated.get() ? "terminated"
+                : isDetached.get() ? "detached" : isRunning.get() ? "running" : "stopped";
+        return new SessionStats(sessionId, state, cursor.position(), cursor.size(),
+                (long) replayClockMillis + timeShiftMillis, clock.nowMillis(), replaySpeed.get(),
+                eventsPublished.get(), 0, buffered == null ? 0 : buffered,
+                sink.currentSubscriberCount());
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true))
+            return;
+
+        log.trace("close session: {}", sessionId);
+        halt();
+        terminate();
+        eventSink.get().tryEmitComplete();
+        channels.values().forEach(channel -> channel.sink.tryEmitComplete());
+
+        Runnable action = onClose;
+        if (action != null)
+            action.run();
+    }
+
+    /**
+     * @param action Run once when session is closed, e.g. to release the session dataset.
+     */
+    public void onClose(Runnable action) {
+        this.onClose = action;
+    }
+
+    /**
+     * @param action Run when session terminates (end of data or closed), e.g. to release the
+     *        session dataset without waiting for the session to be removed. May run more than
+     *        once.
+     */
+    public void onTerminate(Runnable action) {
+        this.onTerminate = action;
+    }
+
+    /**
+     * @param dataset Dataset the session was created on, null for the default dataset.
+     * @param symbols Symbols replayed, empty for the dataset data file.
+     */
+    public void origin(String dataset, List<String> symbols) {
+        this.dataset = dataset;
+        this.symbols = symbols == null ? List.of() : List.copyOf(symbols);
+    }
+
+    /**
+     * Checkpoint session cursor and settings. Taken while the session may be publishing, so the
+     * position and replay clock are a recent rather than an exact pair.
+     *
+     * @return Session checkpoint.
+     */
+    public SessionCheckpoint checkpoint() {
+        return new SessionCheckpoint(sessionId, dataset, symbols, cursor.position(),
+                replayClockMillis, replaySpeed.get(), maxGapMillis.get(),
+                isRunning.get() || (isDetached.get() && resumeOnAttach.get()), looping,
+                shiftTimestamps, timeShiftMillis, loops.get(), eventsPublished.get(), false);
+    }
+
+    /**
+     * Restore session from a checkpoint, e.g. after a restart. The next subscriber receives the
+     * market state at the restored position first. A session that was running is resumed once a
+     * subscriber attaches.
+     *
+     * @param checkpoint Session checkpoint.
+     */
+    public void restore(SessionCheckpoint checkpoint) {
+        log.trace("restore session: {} from: {}", sessionId, checkpoint);
+        replaySpeed.set(checkpoint.replaySpeed());
+        maxGapMillis.set(checkpoint.maxGapMillis());
+        looping = checkpoint.looping();
+        shiftTimestamps = checkpoint.shiftTimestamps();
+        timeShiftMillis = checkpoint.timeShiftMillis();
+        loops.set(checkpoint.loops());
+        eventsPublished.set(checkpoint.eventsPublished());
+
+        // Data may have changed since the checkpoint, e.g. live data not yet tailed up to it
+        int position = Math.max(0, Math.min(checkpoint.position(), cursor.size()));
+        reposition(position);
+        if (position == checkpoint.position() && cursor.peek() != null)
+            replayClockMillis = Math.min(checkpoint.replayClockMillis(), cursor.peek().timestamp());
+
+        // No subscriber until a client reattaches
+        resumeOnAttach.set(checkpoint.running());
+        isDetached.set(true);
+    }
+
     @Override
     public String sessionId() {
         return sessionId;
@@ -231,8 +852,12 @@ public class ReplaySessionImpl implements ReplaySession {
         return replaySpeed.get();
     }
 
+    public long getMaxGapMillis() {
+        return maxGapMillis.get();
+    }
+
     public int getCurrentIndex() {
-        return currentIndex.get();
+        return cursor.position();
     }
 
     @Override
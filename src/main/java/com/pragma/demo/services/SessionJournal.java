@@ -0,0 +1,161 @@
+package com.pragma.demo.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pragma.demo.models.SessionCheckpoint;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of session checkpoints, one JSON record per line. The latest record of a
+ * session wins, a tombstone (see SessionCheckpoint.removed) drops it. Records are written through
+ * to the file but not synced - a process crash loses nothing, a machine crash may lose the last
+ * records.
+ *
+ * A line that cannot be parsed (e.g. torn by a crash while it was written) is skipped. The journal
+ * is compacted by rewriting the latest record of each live session to a new file that replaces the
+ * journal atomically.
+ */
+@Slf4j
+public class SessionJournal {
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private BufferedWriter writer;
+    private long records; // records in the file, including superseded ones
+
+    public SessionJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the journal.
+     *
+     * @return Latest checkpoint of each live session, by session id, in journal order.
+     */
+    public synchronized Map<String, SessionCheckpoint> read() {
+        Map<String, SessionCheckpoint> sessions = new LinkedHashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        }
+        catch (NoSuchFileException e) {
+            log.trace("Journal not found: {}", file);
+            return sessions;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int skipped = 0;
+        records = 0;
+        for (String line : lines) {
+            if (line.isBlank())
+                continue;
+            try {
+                SessionCheckpoint checkpoint = mapper.readValue(line, SessionCheckpoint.class);
+                if (checkpoint.removed())
+                    sessions.remove(checkpoint.sessionId());
+                else
+                    sessions.put(checkpoint.sessionId(), checkpoint);
+                records++;
+            }
+            catch (JsonProcessingException e) {
+                skipped++;
+            }
+        }
+        if (skipped > 0)
+            log.warn("Skipped {} unreadable records in journal: {}", skipped, file);
+        return sessions;
+    }
+
+    /**
+     * Append records.
+     *
+     * @param checkpoints Checkpoints and tombstones.
+     */
+    public synchronized void append(Collection<SessionCheckpoint> checkpoints) {
+        if (checkpoints.isEmpty())
+            return;
+        try {
+            if (writer == null)
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            for (SessionCheckpoint checkpoint : checkpoints) {
+                writer.write(mapper.writeValueAsString(checkpoint));
+                writer.newLine();
+            }
+            writer.flush();
+            records += checkpoints.size();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replace the journal with the given checkpoints.
+     *
+     * @param checkpoints Latest checkpoint of each live session.
+     */
+    public synchronized void compact(Collection<SessionCheckpoint> checkpoints) {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (SessionCheckpoint checkpoint : checkpoints) {
+                    out.write(mapper.writeValueAsString(checkpoint));
+                    out.newLine();
+                }
+            }
+            close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.trace("Compacted journal: {} from {} to {} records", file, records,
+                    checkpoints.size());
+            records = checkpoints.size();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Records in the journal, including records superseded by later ones.
+     */
+    public synchronized long records() {
+        return records;
+    }
+
+    /**
+     * Close the journal file. The journal is reopened by the next append.
+     */
+    public synchronized void close() {
+        if (writer == null)
+            return;
+        try {
+            writer.close();
+        }
+        catch (IOException e) {
+            log.error("Failed to close journal: {}", file, e);
+        }
+        writer = null;
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.pragma.demo.services;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Cursor over a single event store. Position is the store index of the next event.
+ */
+class StoreCursor implements EventCursor {
+
+    private final EventStore store;
+    private final AtomicInteger index = new AtomicInteger(0);
+
+    StoreCursor(EventStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return store.isOpen();
+    }
+
+    @Override
+    public int position() {
+        return index.get();
+    }
+
+    @Override
+    public MarketDataEvent peek() {
+        int idx = index.get();
+        return idx < store.size() ? store.get(idx) : null;
+    }
+
+    @Override
+    public void advance(int expectedPosition) {
+        index.compareAndSet(expectedPosition, expectedPosition + 1);
+    }
+
+    @Override
+    public void seekPosition(int position) {
+        index.set(Math.min(Math.max(position, 0), store.size()));
+    }
+
+    @Override
+    public void seekTimestamp(long epochMillis) {
+        index.set(store.indexAtOrAfter(epochMillis));
+    }
+
+    @Override
+    public List<MarketDataEvent> snapshot() {
+        return store.snapshot(index.get());
+    }
+}
@@ -0,0 +1,47 @@
+package com.pragma.demo.services.clock;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Source of time for replay sessions. Sessions publish on every tick and advance their replay clock
+ * by replaySpeed * period per tick, so the emission sequence only depends on the number of ticks -
+ * not on how (or how fast) the ticks are produced.
+ *
+ * {@link WallReplayClock} ticks in real time. {@link VirtualReplayClock} ticks only when advanced,
+ * which lets tests and offline simulations replay a full dataset in milliseconds.
+ */
+public interface ReplayClock {
+
+    /**
+     * Periodic ticks. First tick is one period after subscription. Cancelling the subscription stops
+     * the ticks.
+     *
+     * @param periodMillis Tick period in millis.
+     * @return Tick sequence 0, 1, 2, ...
+     */
+    Flux<Long> ticks(long periodMillis);
+
+    /**
+     * Periodic ticks aligned to an origin, e.g. shared by sessions started together. Tick n is due
+     * at originMillis + (n + 1) * periodMillis. Ticks already due on subscription are delivered
+     * right away, so tickers on the same origin tick in step however late each one subscribes.
+     * Cancelling the subscription stops the ticks.
+     *
+     * @param periodMillis Tick period in millis.
+     * @param originMillis Origin, time of this clock in epoch millis.
+     * @return Tick sequence 0, 1, 2, ...
+     */
+    Flux<Long> ticks(long periodMillis, long originMillis);
+
+    /**
+     * @return Current time of this clock, epoch millis.
+     */
+    long nowMillis();
+
+    /**
+     * @return Current time of this clock, epoch micros. Used to time emissions, see ReplayEnvelope.
+     */
+    default long nowMicros() {
+        return nowMillis() * 1000;
+    }
+}
@@ -0,0 +1,131 @@
+package com.pragma.demo.services.clock;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Virtual time clock. Time only moves when {@link #advance(Duration)} or {@link #advanceTo(long)} is
+ * called, and every tick that falls due is delivered synchronously on the calling thread, in time
+ * order. Session publishing therefore runs inline with the advance call - when advance returns, all
+ * events due up to the new time have been emitted.
+ */
+public class VirtualReplayClock implements ReplayClock {
+
+    private final Object lock = new Object();
+    private long nowMillis;
+    private final List<Ticker> tickers = new ArrayList<>(); // guarded by lock
+
+    private static class Ticker {
+        private final long periodMillis;
+        private final FluxSink<Long> sink;
+        private long dueMillis;
+        private long count;
+
+        Ticker(long periodMillis, long dueMillis, FluxSink<Long> sink) {
+            this.periodMillis = periodMillis;
+            this.dueMillis = dueMillis;
+            this.sink = sink;
+        }
+    }
+
+    public VirtualReplayClock() {
+        this(0);
+    }
+
+    /**
+     * @param startMillis Initial clock time, epoch millis.
+     */
+    public VirtualReplayClock(long startMillis) {
+        this.nowMillis = startMillis;
+    }
+
+    @Override
+    public Flux<Long> ticks(long periodMillis) {
+        return schedule(periodMillis, null);
+    }
+
+    /**
+     * {@inheritDoc} Ticks already due are delivered on the next advance.
+     */
+    @Override
+    public Flux<Long> ticks(long periodMillis, long originMillis) {
+        return schedule(periodMillis, originMillis);
+    }
+
+    // Origin null => time of subscription
+    private Flux<Long> schedule(long periodMillis, Long originMillis) {
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("Tick period must be positive: " + periodMillis);
+
+        return Flux.create(sink -> {
+            Ticker ticker;
+            synchronized (lock) {
+                long origin = originMillis == null ? nowMillis : originMillis;
+                ticker = new Ticker(periodMillis, origin + periodMillis, sink);
+                tickers.add(ticker);
+            }
+            sink.onDispose(() -> {
+                synchronized (lock) {
+                    tickers.remove(ticker);
+                }
+            });
+        });
+    }
+
+    @Override
+    public long nowMillis() {
+        synchronized (lock) {
+            return nowMillis;
+        }
+    }
+
+    /**
+     * Advance clock, delivering all ticks that fall due.
+     *
+     * @param duration Time to advance by.
+     */
+    public void advance(Duration duration) {
+        advanceTo(nowMillis() + duration.toMillis());
+    }
+
+    /**
+     * Advance clock to target time, delivering all ticks that fall due. Does nothing if target is not
+     * after current time.
+     *
+     * @param targetMillis Target time, epoch millis.
+     */
+    public void advanceTo(long targetMillis) {
+        while (true) {
+            Ticker next = null;
+            long tick;
+            synchronized (lock) {
+                for (Ticker ticker : tickers) {
+                    if (ticker.dueMillis <= targetMillis
+                            && (next == null || ticker.dueMillis < next.dueMillis))
+                        next = ticker;
+                }
+                if (next == null) {
+                    nowMillis = Math.max(nowMillis, targetMillis);
+                    return;
+                }
+                nowMillis = Math.max(nowMillis, next.dueMillis); // late ticks do not go back
+                next.dueMillis += next.periodMillis;
+                tick = next.count++;
+            }
+            // Deliver outside the lock, subscriber may cancel or start new tickers
+            next.sink.next(tick);
+        }
+    }
+
+    /**
+     * @return Number of active tickers.
+     */
+    public int tickerCount() {
+        synchronized (lock) {
+            return tickers.size();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pragma.demo.services.clock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.LongStream;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Real time clock. Ticks are scheduled on the bounded elastic scheduler. Micros are derived from
+ * System.nanoTime aligned to the epoch once, so they are monotonic and unaffected by wall clock
+ * adjustments.
+ */
+public class WallReplayClock implements ReplayClock {
+
+    private static final long BASE_NANOS = System.nanoTime();
+    private static final long BASE_EPOCH_MICROS = ChronoUnit.MICROS.between(Instant.EPOCH,
+            Instant.now());
+
+    private final Scheduler scheduler;
+
+    public WallReplayClock() {
+        this(Schedulers.boundedElastic());
+    }
+
+    public WallReplayClock(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Flux<Long> ticks(long periodMillis) {
+        return Flux.interval(Duration.ofMillis(periodMillis), scheduler);
+    }
+
+    @Override
+    public Flux<Long> ticks(long periodMillis, long originMillis) {
+        return Flux.defer(() -> {
+            long elapsed = nowMillis() - originMillis;
+            Duration period = Duration.ofMillis(periodMillis);
+            if (elapsed < 0) // origin ahead
+                return Flux.interval(Duration.ofMillis(periodMillis - elapsed), period, scheduler);
+
+            long missed = elapsed / periodMillis; // already due, delivered right away
+            Duration delay = Duration.ofMillis(periodMillis - elapsed % periodMillis);
+            return Flux.concat(Flux.fromStream(LongStream.range(0, missed).boxed()),
+                    Flux.interval(delay, period, scheduler).map(tick -> tick + missed));
+        });
+    }
+
+    @Override
+    public long nowMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nowMicros() {
+        return BASE_EPOCH_MICROS + (System.nanoTime() - BASE_NANOS) / 1000;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pragma.demo.services.data;
+
+import java.util.Arrays;
+import java.util.List;
+import com.pragma.demo.models.MarketDataEvent;
+
+/**
+ * Parses market data CSV one line at a time, for data that arrives incrementally (tailed files,
+ * uploads) rather than as a complete resource. Columns are located by the header line, so column
+ * order may vary. Quoted fields are not supported - market data fields never contain commas.
+ * Blank numeric fields are read as 0.
+ */
+public class CSVLineParser {
+
+    private static final List<String> COLUMNS = List.of("Id", "Timestamp", "Event", "Price1",
+            "Shares1", "Xchg1", "Price2", "Shares2", "Xchg2");
+
+    private final int[] columns; // position in line of each of COLUMNS
+
+    /**
+     * @param header Header line, may start with a UTF-8 BOM.
+     *
+     * @throws IllegalArgumentException if a column is missing.
+     */
+    public CSVLineParser(String header) {
+        List<String> names = Arrays.stream(stripBom(header).split(",", -1))
+                .map(name -> name.trim().toLowerCase()).toList();
+        columns = new int[COLUMNS.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = names.indexOf(COLUMNS.get(i).toLowerCase());
+            if (columns[i] < 0)
+                throw new IllegalArgumentException("Missing CSV column: " + COLUMNS.get(i));
+        }
+    }
+
+    /**
+     * Parse data line.
+     *
+     * @param line CSV line without line terminator.
+     * @return Event.
+     *
+     * @throws IllegalArgumentException if line is malformed.
+     */
+    public MarketDataEvent parse(String line) {
+        String[] fields = line.split(",", -1);
+        return new MarketDataEvent(
+                Integer.parseInt(field(fields, 0)),
+                Long.parseLong(field(fields, 1)),
+                field(fields, 2),
+                parseDouble(field(fields, 3)),
+                parseInt(field(fields, 4)),
+                field(fields, 5),
+                parseDouble(field(fields, 6)),
+                parseInt(field(fields, 7)),
+                field(fields, 8));
+    }
+
+    private String field(String[] fields, int column) {
+        int position = columns[column];
+        if (position >= fields.length)
+            throw new IllegalArgumentException("Missing CSV field: " + COLUMNS.get(column));
+        return fields[position].trim();
+    }
+
+    private static double parseDouble(String value) {
+        return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+    }
+
+    private static int parseInt(String value) {
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+}
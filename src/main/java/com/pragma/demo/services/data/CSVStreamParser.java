@@ -0,0 +1,129 @@
+package com.pragma.demo.services.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.pragma.demo.models.MarketDataEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Incremental market data CSV parser for data that arrives in chunks (tailed files, streamed
+ * uploads). Chunks are split into lines, a line split across chunks is held back until it is
+ * complete, so only the current line is buffered. The first valid line is the header (a UTF-8 BOM
+ * is stripped, as in the classpath readers).
+ *
+ * Rows that cannot be parsed or are out of timestamp order are logged and skipped. Not thread
+ * safe.
+ */
+@Slf4j
+public class CSVStreamParser {
+
+    private final String source; // for log messages
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private CSVLineParser parser; // created from header line
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long rows;
+    private long skippedRows;
+
+    /**
+     * @param source Data source name, e.g. file name, for log messages.
+     */
+    public CSVStreamParser(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Parse all complete lines in chunk. Chunk is fully consumed.
+     *
+     * @param chunk Next chunk of the data.
+     * @return Parsed events, possibly empty.
+     */
+    public List<MarketDataEvent> feed(ByteBuffer chunk) {
+        List<MarketDataEvent> events = new ArrayList<>();
+        while (chunk.hasRemaining()) {
+            byte b = chunk.get();
+            if (b == '\n') {
+                parseLine(events);
+            }
+            else {
+                if (lineLength == line.length)
+                    line = Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = b;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * End of data. Parses a trailing line without line terminator.
+     *
+     * @return Parsed event, or empty.
+     */
+    public List<MarketDataEvent> finish() {
+        List<MarketDataEvent> events = new ArrayList<>();
+        parseLine(events);
+        return events;
+    }
+
+    /**
+     * Drop a held back incomplete line, e.g. when the data source was truncated.
+     */
+    public void discardPartialLine() {
+        lineLength = 0;
+    }
+
+    /**
+     * @return True if a valid header line was read.
+     */
+    public boolean hasHeader() {
+        return parser != null;
+    }
+
+    /**
+     * @return Number of rows parsed.
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * @return Number of rows skipped.
+     */
+    public long skippedRows() {
+        return skippedRows;
+    }
+
+    private void parseLine(List<MarketDataEvent> events) {
+        String text = new String(line, 0, lineLength, StandardCharsets.UTF_8).strip();
+        lineLength = 0;
+        if (text.isEmpty())
+            return;
+
+        try {
+            if (parser == null) {
+                parser = new CSVLineParser(text);
+                return;
+            }
+            MarketDataEvent event = parser.parse(text);
+            if (event.timestamp() < lastTimestamp) {
+                skippedRows++;
+                log.warn("Skipped out of order row in: {}, row: {}", source, text);
+                return;
+            }
+            lastTimestamp = event.timestamp();
+            rows++;
+            events.add(event);
+        }
+        catch (IllegalArgumentException e) {
+            if (parser != null)
+                skippedRows++;
+            log.warn("Skipped malformed {} in: {}, line: {}, {}",
+                    parser == null ? "header" : "row", source, text, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pragma.demo.codec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.data.JacksonCSVReaderService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDataBinaryCodecTest {
+
+    private List<MarketDataEvent> events;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        events = new JacksonCSVReaderService()
+                .readMarketDataEvents(new ClassPathResource("marketdata-for-coding-challenge.csv"));
+    }
+
+    @Test
+    void testRoundTrip() {
+        MarketDataBinaryEncoder encoder = new MarketDataBinaryEncoder();
+        MarketDataBinaryDecoder decoder = new MarketDataBinaryDecoder();
+
+        List<MarketDataEvent> decoded = new ArrayList<>();
+        for (MarketDataEvent event : events) {
+            decoded.addAll(decoder.decode(encoder.encode(event)));
+        }
+
+        assertEquals(events, decoded);
+        assertFalse(decoder.hasPartialFrame());
+    }
+
+    @Test
+    void testFramesSplitAcrossChunks() {
+        byte[] stream = new MarketDataBinaryEncoder().encode(events);
+        MarketDataBinaryDecoder decoder = new MarketDataBinaryDecoder();
+
+        // odd chunk size so frames and length prefixes straddle chunk boundaries
+        List<MarketDataEvent> decoded = new ArrayList<>();
+        for (int from = 0; from < stream.length; from += 7) {
+            decoded.addAll(decoder.decode(
+                    Arrays.copyOfRange(stream, from, Math.min(from + 7, stream.length))));
+        }
+
+        assertEquals(events, decoded);
+        assertFalse(decoder.hasPartialFrame());
+    }
+
+    @Test
+    void testLiteralTypesAndVenues() {
+        List<MarketDataEvent> odd = List.of(
+                new MarketDataEvent(10, 5000, "Halt", 0.0, 0, "", 0.0, 0, ""),
+                new MarketDataEvent(9, 4000, "Bid", 99.9999, 100, "ARCA", 0.0, 0, ""),
+                new MarketDataEvent(11, 6000, "NBBO", 100.01, 1, "Q", 100.02, 2, "Z"));
+
+        MarketDataBinaryDecoder decoder = new MarketDataBinaryDecoder();
+        assertEquals(odd, decoder.decode(new MarketDataBinaryEncoder().encode(odd)));
+    }
+
+    @Test
+    void testSymbols() {
+        List<MarketDataEvent> merged = List.of(
+                new MarketDataEvent(1, 1000, "Bid", 10.0, 1, "Q", 0.0, 0, "").withSymbol("AAPL"),
+                new MarketDataEvent(1, 1000, "Bid", 20.0, 2, "Q", 0.0, 0, "").withSymbol("MSFT"),
+                new MarketDataEvent(2, 1001, "Ask", 20.1, 2, "Q", 0.0, 0, "").withSymbol("MSFT"),
+                new MarketDataEvent(3, 1002, "Trade", 1.0, 1, "Q", 0.0, 0, ""));
+
+        MarketDataBinaryDecoder decoder = new MarketDataBinaryDecoder();
+        assertEquals(merged, decoder.decode(new MarketDataBinaryEncoder().encode(merged)));
+    }
+
+    @Test
+    void testSmallerThanJson() throws Exception {
+        byte[] binary = new MarketDataBinaryEncoder().encode(events);
+        byte[] json = new ObjectMapper().writeValueAsBytes(events);
+
+        assertTrue(json.length > 5 * binary.length,
+                "binary: " + binary.length + " bytes, json: " + json.length + " bytes");
+    }
+}
@@ -0,0 +1,102 @@
+package com.pragma.demo.codec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pragma.demo.models.CompressionReport;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.data.JacksonCSVReaderService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamCompressorTest {
+
+    private List<String> messages;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        messages = new ArrayList<>();
+        for (MarketDataEvent event : new JacksonCSVReaderService().readMarketDataEvents(
+                new ClassPathResource("marketdata-for-coding-challenge.csv"))) {
+            messages.add(
+                    "id:" + event.id() + "\ndata:" + mapper.writeValueAsString(event) + "\n\n");
+        }
+    }
+
+    @Test
+    void testDeflateFlushesEveryMessage() throws Exception {
+        CompressionMetrics metrics = new CompressionMetrics();
+        StreamCompressor compressor =
+                new StreamCompressor(StreamCompressor.Encoding.DEFLATE, 6, metrics);
+        Inflater inflater = new Inflater();
+        byte[] out = new byte[64 * 1024];
+        try {
+            // Each message decompresses as soon as its compressed bytes are received
+            for (String message : messages) {
+                inflater.setInput(compressor.compress(bytes(message)));
+                int length = inflater.inflate(out);
+                assertEquals(message, new String(out, 0, length, StandardCharsets.UTF_8));
+            }
+            inflater.setInput(compressor.finish());
+            assertEquals(0, inflater.inflate(out));
+            assertTrue(inflater.finished());
+        }
+        finally {
+            compressor.end();
+            inflater.end();
+        }
+
+        // Shared context - repeated field names and codes compress well despite a flush per event
+        CompressionReport report = metrics.report();
+        assertEquals(1, report.deflateStreams());
+        assertEquals(0, report.activeStreams());
+        assertEquals(messages.size(), report.messages());
+        assertTrue(report.ratio() > 3, "ratio: " + report.ratio());
+    }
+
+    @Test
+    void testGzip() throws Exception {
+        CompressionMetrics metrics = new CompressionMetrics();
+        StreamCompressor compressor =
+                new StreamCompressor(StreamCompressor.Encoding.GZIP, 1, metrics);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (String message : messages)
+            stream.write(compressor.compress(bytes(message)));
+        stream.write(compressor.finish());
+        compressor.end();
+        compressor.end(); // no-op
+
+        try (GZIPInputStream in =
+                new GZIPInputStream(new ByteArrayInputStream(stream.toByteArray()))) {
+            assertEquals(String.join("", messages),
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(stream.size(), metrics.report().compressedBytes());
+        assertEquals(0, metrics.report().activeStreams());
+    }
+
+    @Test
+    void testNegotiate() {
+        assertEquals(StreamCompressor.Encoding.GZIP,
+                StreamCompressor.Encoding.negotiate("deflate, gzip, br"));
+        assertEquals(StreamCompressor.Encoding.DEFLATE,
+                StreamCompressor.Encoding.negotiate("gzip;q=0, Deflate;q=0.5"));
+        assertNull(StreamCompressor.Encoding.negotiate("br, identity"));
+        assertNull(StreamCompressor.Encoding.negotiate(null));
+    }
+
+    private static ByteBuffer bytes(String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,147 @@
+package com.pragma.demo.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.DatasetNotReadyException;
+import com.pragma.demo.services.EventStore;
+import com.pragma.demo.services.ReplayException;
+import com.pragma.demo.services.ReplayService;
+import com.pragma.demo.services.ReplaySessionImpl;
+import com.pragma.demo.services.clock.VirtualReplayClock;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplayWebSocketHandlerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ReplayService service;
+    private ReplayWebSocketHandler handler;
+    private ReplaySessionImpl session;
+
+    @BeforeEach
+    void setUp() {
+        session = new ReplaySessionImpl("session1", new EventStore(List.of(
+                new MarketDataEvent(1, 1000, "Bid", 100.0, 10, "Q", 0.0, 0, ""),
+                new MarketDataEvent(2, 2000, "Bid", 100.1, 10, "Q", 0.0, 0, ""))), 100,
+                new VirtualReplayClock());
+        service = mock(ReplayService.class);
+        when(service.session("session1")).thenReturn(session);
+
+        handler = new ReplayWebSocketHandler();
+        ReflectionTestUtils.setField(handler, "marketDataService", service);
+        ReflectionTestUtils.setField(handler, "objectMapper", mapper);
+    }
+
+    // Socket receiving the given frames, output completes after maxSent messages
+    private WebSocketSession socket(String query, Flux<String> frames, int maxSent,
+            List<String> sent) {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getId()).thenReturn("ws1");
+        when(ws.getHandshakeInfo()).thenReturn(new HandshakeInfo(
+                URI.create("ws://localhost/mktdata/ws" + query), new HttpHeaders(), Mono.empty(),
+                null));
+        when(ws.textMessage(anyString()))
+                .thenAnswer(invocation -> message(invocation.getArgument(0)));
+        when(ws.receive()).thenReturn(frames.map(ReplayWebSocketHandlerTest::message));
+        when(ws.send(any())).thenAnswer(invocation -> {
+            Publisher<WebSocketMessage> messages = invocation.getArgument(0);
+            return Flux.from(messages).take(maxSent)
+                    .doOnNext(message -> sent.add(message.getPayloadAsText())).then();
+        });
+        return ws;
+    }
+
+    private static WebSocketMessage message(String text) {
+        return new WebSocketMessage(WebSocketMessage.Type.TEXT,
+                DefaultDataBufferFactory.sharedInstance
+                        .wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private ControlReply reply(String json) throws Exception {
+        return mapper.readValue(json, ControlReply.class);
+    }
+
+    @Test
+    void testCommands() throws Exception {
+        List<String> sent = new ArrayList<>();
+        WebSocketSession ws = socket("?sessionId=session1",
+                Flux.just("start", "j 99", "bogus").concatWith(Flux.never()), 4, sent);
+
+        StepVerifier.create(handler.handle(ws)).expectComplete().verify(Duration.ofSeconds(5));
+
+        // SESSION first, then one reply per command frame in order
+        assertEquals(ControlReply.ok("SESSION", "session1"), reply(sent.get(0)));
+        assertEquals(ControlReply.ok("START", "session1"), reply(sent.get(1)));
+        assertEquals("ERROR", reply(sent.get(2)).status());
+        assertEquals("j", reply(sent.get(2)).command()); // as sent
+        assertEquals(new ControlReply("bogus", "ERROR", "Unknown command: bogus"),
+                reply(sent.get(3)));
+
+        // Bound session is stopped but not removed when the connection closes
+        assertFalse(session.isRunning());
+        verify(service, never()).removeSession(any());
+    }
+
+    @Test
+    void testSessionNotFound() {
+        when(service.session("session2")).thenThrow(new ReplayException("not found: session2"));
+        WebSocketSession ws = socket("?sessionId=session2", Flux.never(), 1, new ArrayList<>());
+        when(ws.close(any())).thenReturn(Mono.empty());
+
+        // Session is looked up off the event loop, a failed lookup closes the connection
+        StepVerifier.create(handler.handle(ws)).expectComplete().verify(Duration.ofSeconds(5));
+        verify(ws).close(CloseStatus.POLICY_VIOLATION.withReason("not found: session2"));
+        verify(ws, never()).send(any());
+    }
+
+    @Test
+    void testDatasetNotReady() {
+        when(service.createSession(any(), any()))
+                .thenThrow(new DatasetNotReadyException("default dataset is loading"));
+        WebSocketSession ws = socket("", Flux.never(), 1, new ArrayList<>());
+        when(ws.close(any())).thenReturn(Mono.empty());
+
+        // Try again later, not a policy violation
+        StepVerifier.create(handler.handle(ws)).expectComplete().verify(Duration.ofSeconds(5));
+        verify(ws).close(CloseStatus.SERVICE_OVERLOAD.withReason("default dataset is loading"));
+    }
+
+    @Test
+    void testSubscribeErrorAndExpiredSession() throws Exception {
+        when(service.createSession(any(), any())).thenReturn("session1");
+        doThrow(new ReplayException("session not found: session1")).when(service)
+                .removeSession("session1");
+        session.close(); // terminated, cannot subscribe
+
+        List<String> sent = new ArrayList<>();
+        WebSocketSession ws = socket("", Flux.never(), 2, sent);
+
+        // Owned session fails to be removed on close, the connection still completes
+        StepVerifier.create(handler.handle(ws)).expectComplete().verify(Duration.ofSeconds(5));
+        assertEquals(ControlReply.ok("SESSION", "session1"), reply(sent.get(0)));
+        assertEquals("SUBSCRIBE", reply(sent.get(1)).command());
+        assertEquals("ERROR", reply(sent.get(1)).status());
+        verify(service).removeSession("session1");
+    }
+}
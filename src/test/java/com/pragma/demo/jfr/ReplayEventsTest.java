@@ -0,0 +1,68 @@
+package com.pragma.demo.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.EventStore;
+import com.pragma.demo.services.ReplayCommand;
+import com.pragma.demo.services.ReplayException;
+import com.pragma.demo.services.ReplaySessionImpl;
+import com.pragma.demo.services.clock.VirtualReplayClock;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayEventsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecording() throws Exception {
+        List<MarketDataEvent> events = List.of(
+                new MarketDataEvent(1, 1000, "Bid", 142.75, 300, "Q", 0, 0, ""),
+                new MarketDataEvent(2, 1000, "Ask", 143.19, 200, "S", 0, 0, ""),
+                new MarketDataEvent(3, 1005, "Trade", 142.90, 100, "Q", 0, 0, ""));
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session =
+                new ReplaySessionImpl("session-1", new EventStore(events), 1, clock);
+
+        Path file = dir.resolve("replay.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ReplayTickEvent.class);
+            recording.enable(ControlCommandEvent.class);
+            recording.start();
+
+            session.subscribe().subscribe();
+            ReplayCommand.START.apply(session, null);
+            assertThrows(ReplayException.class, () -> ReplayCommand.JUMP.apply(session, "99"));
+            clock.advance(Duration.ofMillis(10));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> commands = recorded.stream()
+                .filter(e -> e.getEventType().getName().equals("com.pragma.demo.ControlCommand"))
+                .toList();
+        assertEquals(2, commands.size());
+        assertEquals("START", commands.get(0).getString("command"));
+        assertTrue(commands.get(0).getBoolean("succeeded"));
+        assertEquals("JUMP", commands.get(1).getString("command"));
+        assertEquals("99", commands.get(1).getString("argument"));
+        assertFalse(commands.get(1).getBoolean("succeeded"));
+
+        int released = recorded.stream()
+                .filter(e -> e.getEventType().getName().equals("com.pragma.demo.ReplayTick"))
+                .peek(e -> assertEquals("session-1", e.getString("sessionId")))
+                .mapToInt(e -> e.getInt("eventsReleased")).sum();
+        assertEquals(events.size(), released);
+    }
+}
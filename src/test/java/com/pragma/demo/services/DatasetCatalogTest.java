@@ -0,0 +1,186 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.services.data.CSVReaderService;
+import com.pragma.demo.services.data.JacksonCSVReaderService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DatasetCatalogTest {
+
+    static final String CSV = """
+            Id,Timestamp,Event,Price1,Shares1,Xchg1,Price2,Shares2,Xchg2
+            1,1563197400213,Bid,142.75,300,Q,,,
+            2,1563197400213,NBBO,142.75,400,S,143.19,200,S
+            3,1563197400300,Trade,142.80,100,Q,,,
+            """;
+
+    @TempDir
+    Path datasetsDir;
+
+    private DatasetCatalog catalog;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(datasetsDir.resolve("day1.csv"), CSV);
+        Files.createDirectory(datasetsDir.resolve("day2"));
+        Files.writeString(datasetsDir.resolve("day2").resolve("aapl.csv"), CSV);
+        Files.writeString(datasetsDir.resolve("day2").resolve("msft.csv"), CSV);
+
+        catalog = catalog(datasetsDir);
+    }
+
+    // Catalog of named datasets under datasetsDir, shared with other service tests
+    static DatasetCatalog catalog(Path datasetsDir) {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBean("JacksonCSVReader", CSVReaderService.class))
+                .thenReturn(new JacksonCSVReaderService());
+        DatasetCatalog catalog = new DatasetCatalog(context, "JacksonCSVReader");
+        ReflectionTestUtils.setField(catalog, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(catalog, "checkpointInterval", 256);
+        ReflectionTestUtils.setField(catalog, "datasetsDir", "file:" + datasetsDir);
+        ReflectionTestUtils.setField(catalog, "memoryBudgetMb", 1L);
+        return catalog;
+    }
+
+    @Test
+    void testAcquireShared() {
+        Dataset day1 = catalog.acquire("day1");
+        assertEquals(3, day1.size());
+        assertEquals(1, day1.references());
+
+        assertSame(day1, catalog.acquire("day1"));
+        assertEquals(2, day1.references());
+        assertEquals(List.of(day1), catalog.loaded());
+    }
+
+    @Test
+    void testSymbols() {
+        Dataset day2 = catalog.acquire("day2");
+        assertEquals(List.of("AAPL", "MSFT"), day2.symbols());
+        assertEquals("AAPL", day2.segments(List.of("aapl")).get(0).get(0).symbol());
+        assertEquals(2, day2.segments(List.of("MSFT", "AAPL", "msft")).size());
+        assertThrows(ReplayException.class, () -> day2.segments(List.of()));
+        assertThrows(ReplayException.class, () -> day2.segments(List.of("IBM")));
+    }
+
+    @Test
+    void testNotFound() {
+        assertThrows(ReplayException.class, () -> catalog.acquire("day3"));
+        assertThrows(ReplayException.class, () -> catalog.acquire("../day1"));
+        assertTrue(catalog.loaded().isEmpty());
+    }
+
+    @Test
+    void testReload() throws Exception {
+        Dataset v1 = catalog.acquire("day1");
+        Files.writeString(datasetsDir.resolve("day1.csv"),
+                CSV + "4,1563197400400,Trade,142.85,100,Q,,,\n");
+
+        Dataset v2 = catalog.reload("day1");
+        assertTrue(v2.version() > v1.version());
+        assertEquals(4, v2.size());
+        assertEquals(3, v1.size()); // running sessions keep their version
+        assertEquals(List.of(v1), catalog.retired());
+
+        assertSame(v2, catalog.acquire("day1"));
+        catalog.release(v1);
+        assertTrue(catalog.retired().isEmpty());
+        assertEquals(List.of(v2), catalog.loaded());
+    }
+
+    @Test
+    void testReloadFailureKeepsCurrent() throws Exception {
+        Dataset v1 = catalog.acquire("day1");
+        Files.delete(datasetsDir.resolve("day1.csv"));
+
+        assertThrows(ReplayException.class, () -> catalog.reload("day1"));
+        assertThrows(ReplayException.class, () -> catalog.reload(DatasetCatalog.LIVE_DATASET));
+        assertSame(v1, catalog.acquire("day1"));
+    }
+
+    @Test
+    void testRegister() throws Exception {
+        List<MarketDataEvent> events = new JacksonCSVReaderService()
+                .readMarketDataEvents(new ByteArrayResource(CSV.getBytes(StandardCharsets.UTF_8)));
+        Dataset v1 = catalog.register("upload", events);
+        assertEquals(3, v1.size());
+        assertEquals(1, v1.references()); // pinned
+        assertSame(v1, catalog.acquire("upload"));
+
+        // Replaced version is unpinned and retired until its session releases it
+        Dataset v2 = catalog.register("upload", events);
+        assertSame(v2, catalog.acquire("upload"));
+        assertEquals(List.of(v1), catalog.retired());
+        catalog.release(v1);
+        assertTrue(catalog.retired().isEmpty());
+
+        assertThrows(ReplayException.class, () -> catalog.register("default", events));
+        assertThrows(ReplayException.class, () -> catalog.register("../upload", events));
+
+        // Store filled batch by batch, registered once closed
+        EventStore store = catalog.openStore();
+        store.append(events.subList(0, 2));
+        assertThrows(ReplayException.class, () -> catalog.register("upload", store));
+        store.append(events.subList(2, 3));
+        store.close();
+        Dataset v3 = catalog.register("upload", store);
+        assertSame(v3, catalog.acquire("upload"));
+        assertEquals(3, v3.size());
+        assertFalse(v3.segments(null).get(0).analytics().series(MarketAnalytics.VWAP).isEmpty());
+    }
+
+    @Test
+    void testAsyncLoad() throws Exception {
+        ReflectionTestUtils.setField(catalog, "asyncLoad", true);
+        ReflectionTestUtils.setField(catalog, "dataFile", "marketdata-for-coding-challenge.csv");
+        ReflectionTestUtils.setField(catalog, "dataDir", "");
+        ReflectionTestUtils.setField(catalog, "liveFile", "");
+        catalog.init();
+
+        // Default dataset is loaded once the application is ready, named datasets do not wait
+        assertFalse(catalog.isReady());
+        assertThrows(DatasetNotReadyException.class, () -> catalog.acquire(null));
+        assertEquals(3, catalog.acquire("day1").size());
+
+        catalog.onApplicationReady();
+        catalog.whenReady().get(10, TimeUnit.SECONDS);
+        assertTrue(catalog.isReady());
+        Dataset dataset = catalog.acquire(null);
+        assertTrue(dataset.size() > 0);
+        assertEquals(2, dataset.references()); // pinned + acquired
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(catalog, "memoryBudgetMb", 0L);
+
+        Dataset day1 = catalog.acquire("day1");
+        Dataset day2 = catalog.acquire("day2");
+        assertEquals(2, catalog.loaded().size()); // over budget, but both in use
+
+        catalog.release(day2);
+        assertEquals(List.of(day1), catalog.loaded());
+
+        catalog.release(day1);
+        assertTrue(catalog.loaded().isEmpty());
+
+        Dataset reloaded = catalog.acquire("day1");
+        assertNotSame(day1, reloaded);
+        assertEquals(1, reloaded.references());
+    }
+}
@@ -0,0 +1,139 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.MarketDataEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+
+    private EventStore store;
+    private List<MarketDataEvent> events;
+
+    @BeforeEach
+    void setUp() {
+        events = List.of(
+                new MarketDataEvent(1, 1000, "Bid", 100.0, 10, "Q", 0.0, 0, ""),
+                new MarketDataEvent(2, 1000, "Ask", 100.5, 10, "Q", 0.0, 0, ""),
+                new MarketDataEvent(3, 2000, "NBBO", 100.0, 10, "Q", 100.5, 10, "Q"),
+                new MarketDataEvent(4, 3000, "Bid", 100.1, 20, "Z", 0.0, 0, ""),
+                new MarketDataEvent(5, 3000, "Trade", 100.2, 5, "Z", 0.0, 0, ""),
+                new MarketDataEvent(6, 4000, "Bid", 100.2, 30, "Q", 0.0, 0, ""),
+                new MarketDataEvent(7, 5000, "NBBO", 100.2, 30, "Q", 100.5, 10, "Q"));
+
+        store = new EventStore(events, 2); // small interval so snapshots roll forward
+    }
+
+    @Test
+    void testIndexOf() {
+        assertEquals(0, store.indexOf(1));
+        assertEquals(6, store.indexOf(7));
+        assertEquals(-1, store.indexOf(99));
+    }
+
+    @Test
+    void testIndexAtOrAfter() {
+        assertEquals(0, store.indexAtOrAfter(0));
+        assertEquals(0, store.indexAtOrAfter(1000)); // first of equal timestamps
+        assertEquals(2, store.indexAtOrAfter(1001));
+        assertEquals(3, store.indexAtOrAfter(3000));
+        assertEquals(7, store.indexAtOrAfter(5001)); // past the end
+    }
+
+    @Test
+    void testOutOfOrderEventsRejected() {
+        List<MarketDataEvent> unordered = List.of(events.get(2), events.get(0));
+        assertThrows(ReplayException.class, () -> new EventStore(unordered));
+    }
+
+    @Test
+    void testSnapshot() {
+        assertTrue(store.snapshot(0).isEmpty());
+
+        // Before event 6: NBBO 3, Bid Q 1, Ask Q 2, Bid Z 4, Trade 5
+        assertEquals(List.of(1, 2, 3, 4, 5), ids(store.snapshot(5)));
+
+        // Before event 7: Bid Q replaced by event 6
+        assertEquals(List.of(2, 3, 4, 5, 6), ids(store.snapshot(6)));
+
+        // After all events: NBBO replaced by event 7
+        assertEquals(List.of(2, 4, 5, 6, 7), ids(store.snapshot(7)));
+
+        assertTrue(store.snapshot(5).stream().allMatch(MarketDataEvent::snapshot));
+    }
+
+    @Test
+    void testAnalytics() {
+        MarketAnalytics analytics = store.analytics();
+
+        // Single trade at 3000 - bar closes when event at 4000 (index 5) arrives
+        List<AnalyticsPoint> bars = analytics.series(MarketAnalytics.BARS_1S);
+        assertEquals(1, bars.size());
+        assertEquals(5, bars.get(0).index());
+        assertEquals(4000, bars.get(0).timestamp());
+        assertEquals(100.2, bars.get(0).values().get("close"));
+        assertEquals(5.0, bars.get(0).values().get("volume"));
+
+        List<AnalyticsPoint> spread = analytics.series(MarketAnalytics.SPREAD);
+        assertEquals(2, spread.size());
+        assertEquals(0.4, spread.get(1).values().get("meanSpread"), 1e-9);
+        assertEquals(0.5, spread.get(1).values().get("maxSpread"), 1e-9);
+
+        // Positions: spread points at 3 and 7
+        assertEquals(0, analytics.firstAfter(MarketAnalytics.SPREAD, 2));
+        assertEquals(1, analytics.firstAfter(MarketAnalytics.SPREAD, 3));
+        assertEquals(2, analytics.firstAfter(MarketAnalytics.SPREAD, 7));
+
+        assertThrows(ReplayException.class, () -> analytics.series("bars-1h"));
+    }
+
+    @Test
+    void testAppend() {
+        EventStore open = EventStore.open(2);
+        assertTrue(open.isOpen());
+        assertTrue(open.isEmpty());
+
+        open.append(events.subList(0, 3));
+        open.append(events.subList(3, 7));
+        assertEquals(7, open.size());
+        assertEquals(6, open.indexOf(7));
+        assertEquals(3, open.indexAtOrAfter(3000));
+        assertEquals(ids(store.snapshot(6)), ids(open.snapshot(6)));
+        assertThrows(ReplayException.class, open::analytics);
+
+        // Out of order append keeps events before the offending one
+        MarketDataEvent late = new MarketDataEvent(8, 6000, "Bid", 100.0, 10, "Q", 0.0, 0, "");
+        MarketDataEvent early = new MarketDataEvent(9, 1000, "Bid", 100.0, 10, "Q", 0.0, 0, "");
+        assertThrows(ReplayException.class, () -> open.append(List.of(late, early)));
+        assertEquals(8, open.size());
+
+        open.close();
+        assertFalse(open.isOpen());
+    }
+
+    @Test
+    void testAppendWithAnalytics() {
+        EventStore built = EventStore.open(2, true);
+        built.append(events.subList(0, 4));
+        built.append(events.subList(4, 7));
+        assertThrows(ReplayException.class, built::analytics); // until closed
+
+        // Closed store matches a store built from the whole list
+        built.close();
+        built.close(); // no-op
+        assertEquals(store.events(), built.events());
+        assertEquals(ids(store.snapshot(5)), ids(built.snapshot(5)));
+        for (String series : List.of(MarketAnalytics.BARS_1S, MarketAnalytics.VWAP,
+                MarketAnalytics.SPREAD)) {
+            assertEquals(store.analytics().series(series), built.analytics().series(series));
+        }
+    }
+
+    private static List<Integer> ids(List<MarketDataEvent> snapshot) {
+        return snapshot.stream().map(MarketDataEvent::id).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.pragma.demo.models.MarketDataEvent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTailerTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private EventStore store;
+    private FileTailer tailer;
+
+    @BeforeEach
+    void setUp() {
+        file = dir.resolve("live.csv");
+        store = EventStore.open(EventStore.DEFAULT_CHECKPOINT_INTERVAL);
+        tailer = new FileTailer(file, store, 50);
+    }
+
+    @Test
+    void testTail() throws Exception {
+        assertEquals(0, tailer.poll()); // file does not exist yet
+
+        append("\uFEFFId,Timestamp,Event,Price1,Shares1,Xchg1,Price2,Shares2,Xchg2\r\n"
+                + "1,1563197400213,Bid,142.75,300,Q,,,\r\n");
+        assertEquals(1, tailer.poll());
+        assertEquals(0, tailer.poll());
+
+        // Incomplete line is held back until its line terminator arrives
+        append("2,1563197400213,NBBO,142.75,400,S,143.19,200,S\r\n3,15631974003");
+        assertEquals(1, tailer.poll());
+        append("00,Trade,142.80,100,Q,,,\r\n");
+        assertEquals(1, tailer.poll());
+
+        assertEquals(3, store.size());
+        MarketDataEvent nbbo = store.get(1);
+        assertEquals(143.19, nbbo.price2());
+        assertEquals(200, nbbo.shares2());
+        assertEquals(1563197400300L, store.get(2).timestamp());
+    }
+
+    @Test
+    void testSkipBadRows() throws Exception {
+        append("Id,Timestamp,Event,Price1,Shares1,Xchg1,Price2,Shares2,Xchg2\n"
+                + "1,1563197400213,Bid,142.75,300,Q,,,\n"
+                + "2,garbage,Bid,142.75,300,Q,,,\n"
+                + "3,1563197400100,Bid,142.75,300,Q,,,\n" // out of order
+                + "4,1563197400300,Bid,142.75,300,Q,,,\n");
+        assertEquals(2, tailer.poll());
+        assertEquals(4, store.get(1).id());
+    }
+
+    @Test
+    void testStopClosesStore() {
+        tailer.stop();
+        assertFalse(store.isOpen());
+    }
+
+    private void append(String text) throws Exception {
+        Files.writeString(file, text, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
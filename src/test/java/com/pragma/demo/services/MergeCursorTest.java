@@ -0,0 +1,85 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import com.pragma.demo.models.MarketDataEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergeCursorTest {
+
+    private List<MarketDataEvent> aapl;
+    private List<MarketDataEvent> msft;
+    private MergeCursor cursor;
+
+    @BeforeEach
+    void setUp() {
+        aapl = List.of(
+                new MarketDataEvent(1, 1000, "Bid", 190.0, 10, "Q", 0.0, 0, "").withSymbol("AAPL"),
+                new MarketDataEvent(2, 3000, "Ask", 190.1, 10, "Q", 0.0, 0, "").withSymbol("AAPL"),
+                new MarketDataEvent(3, 5000, "Trade", 190.1, 5, "Q", 0.0, 0, "").withSymbol("AAPL"));
+        msft = List.of(
+                new MarketDataEvent(1, 1000, "Bid", 330.0, 20, "Z", 0.0, 0, "").withSymbol("MSFT"),
+                new MarketDataEvent(2, 2000, "Ask", 330.2, 20, "Z", 0.0, 0, "").withSymbol("MSFT"),
+                new MarketDataEvent(3, 4000, "Bid", 330.1, 30, "Z", 0.0, 0, "").withSymbol("MSFT"));
+
+        cursor = new MergeCursor(List.of(new EventStore(aapl), new EventStore(msft)));
+    }
+
+    @Test
+    void testMergeOrder() {
+        List<MarketDataEvent> merged = new ArrayList<>();
+        MarketDataEvent event;
+        while ((event = cursor.peek()) != null) {
+            merged.add(event);
+            cursor.advance(cursor.position());
+        }
+
+        // Equal timestamps in segment order
+        assertEquals(List.of(aapl.get(0), msft.get(0), msft.get(1), aapl.get(1), msft.get(2),
+                aapl.get(2)), merged);
+        assertEquals(6, cursor.size());
+        assertEquals(6, cursor.position());
+    }
+
+    @Test
+    void testAdvanceAfterReposition() {
+        int position = cursor.position();
+        cursor.seekPosition(3);
+        cursor.advance(position); // stale position, no-op
+        assertEquals(3, cursor.position());
+        assertEquals(aapl.get(1), cursor.peek());
+    }
+
+    @Test
+    void testSeekPosition() {
+        cursor.seekPosition(4);
+        assertEquals(msft.get(2), cursor.peek());
+        cursor.seekPosition(1);
+        assertEquals(msft.get(0), cursor.peek());
+        cursor.seekPosition(99);
+        assertEquals(6, cursor.position());
+        assertNull(cursor.peek());
+    }
+
+    @Test
+    void testSeekTimestamp() {
+        cursor.seekTimestamp(2500);
+        assertEquals(3, cursor.position());
+        assertEquals(aapl.get(1), cursor.peek());
+
+        cursor.seekTimestamp(9999);
+        assertEquals(6, cursor.position());
+        assertNull(cursor.peek());
+    }
+
+    @Test
+    void testSnapshot() {
+        cursor.seekTimestamp(2500);
+        assertEquals(List.of(aapl.get(0).asSnapshot(), msft.get(0).asSnapshot(),
+                msft.get(1).asSnapshot()), cursor.snapshot());
+    }
+}
@@ -0,0 +1,48 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplayCommandTest {
+
+    @Test
+    void testParse() {
+        assertEquals(ReplayCommand.JUMP, ReplayCommand.parse("jump"));
+        assertEquals(ReplayCommand.JUMP, ReplayCommand.parse("J"));
+        assertEquals(ReplayCommand.SPEED, ReplayCommand.parse("Speed"));
+        assertEquals(ReplayCommand.LOOP, ReplayCommand.parse("l"));
+        assertThrows(ReplayException.class, () -> ReplayCommand.parse("bogus"));
+    }
+
+    @Test
+    void testApply() {
+        ReplaySession session = mock(ReplaySession.class);
+        ReplayCommand.JUMP.apply(session, "42");
+        ReplayCommand.SPEED.apply(session, " 2.5 ");
+        ReplayCommand.SEEK.apply(session, "1563197400213");
+        ReplayCommand.SEEK.apply(session, "-500");
+        ReplayCommand.GAP.apply(session, "-1");
+        ReplayCommand.LOOP.apply(session, "shift");
+        ReplayCommand.START.apply(session, "ignored");
+
+        verify(session).jumpToEvent(42);
+        verify(session).replaySpeed(2.5);
+        verify(session).seek(1563197400213L);
+        verify(session).seekRelative(-500);
+        verify(session).gapCompression(-1);
+        verify(session).loop(true, true);
+        verify(session).start();
+    }
+
+    @Test
+    void testInvalidArgument() {
+        assertThrows(ReplayException.class, () -> ReplayCommand.JUMP.bind(null));
+        assertThrows(ReplayException.class, () -> ReplayCommand.FORWARD.bind("0"));
+        assertThrows(ReplayException.class, () -> ReplayCommand.SPEED.bind("-1"));
+        assertThrows(ReplayException.class, () -> ReplayCommand.SPEED.bind("NaN"));
+        assertThrows(ReplayException.class, () -> ReplayCommand.SEEK.bind("noon"));
+        assertThrows(ReplayException.class, () -> ReplayCommand.LOOP.bind("maybe"));
+    }
+}
@@ -0,0 +1,230 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.google.common.cache.CacheBuilder;
+import com.pragma.demo.models.ControlReply;
+import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.models.SessionStats;
+import com.pragma.demo.services.clock.VirtualReplayClock;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayServiceTest {
+
+    @TempDir
+    Path datasetsDir;
+
+    private DatasetCatalog catalog;
+    private ReplayService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(datasetsDir.resolve("day1.csv"), DatasetCatalogTest.CSV);
+        catalog = DatasetCatalogTest.catalog(datasetsDir);
+        service = newService();
+    }
+
+    private ReplayService newService() {
+        ReplayService service = new ReplayService();
+        ReflectionTestUtils.setField(service, "publishTimerMillis", 1L);
+        ReflectionTestUtils.setField(service, "maxBulkSessions", 100);
+        ReflectionTestUtils.setField(service, "catalog", catalog);
+        ReflectionTestUtils.setField(service, "cache", CacheBuilder.newBuilder().build());
+        ReflectionTestUtils.setField(service, "clock", new VirtualReplayClock());
+        return service;
+    }
+
+    @Test
+    void testCreateSessions() {
+        List<String> sessionIds = service.createSessions(10, "day1", null, "class");
+        assertEquals(10, sessionIds.size());
+        assertEquals(10, sessionIds.stream().distinct().count());
+        assertTrue(sessionIds.stream().allMatch(service::isSession));
+        assertEquals(10, catalog.acquire("day1").references() - 1);
+        assertEquals(sessionIds.size(), service.group("class").size());
+
+        // Removed sessions are dropped from their group
+        service.removeSession(sessionIds.get(0));
+        assertEquals(9, service.group("class").size());
+
+        assertThrows(ReplayException.class, () -> service.createSessions(0, "day1", null, null));
+        assertThrows(ReplayException.class, () -> service.createSessions(101, "day1", null, null));
+        assertThrows(ReplayException.class, () -> service.createSessions(2, "day3", null, null));
+        assertThrows(ReplayException.class, () -> service.group("day3"));
+    }
+
+    @Test
+    void testDatasetReleasedOnTerminate() {
+        VirtualReplayClock clock = (VirtualReplayClock) ReflectionTestUtils.getField(service,
+                "clock");
+        List<String> sessionIds = service.createSessions(2, "day1", null, null);
+        Dataset day1 = catalog.acquire("day1");
+        assertEquals(3, day1.references());
+
+        // Session replayed to the end releases the dataset while it is still cached
+        service.subscribe(sessionIds.get(0)).subscribe();
+        service.start(sessionIds.get(0));
+        clock.advance(Duration.ofMillis(1000));
+        assertTrue(service.session(sessionIds.get(0)).isTerminated());
+        assertTrue(service.isSession(sessionIds.get(0)));
+        assertEquals(2, day1.references());
+
+        // Released once - closing the terminated session (cache removal) does not release again
+        service.session(sessionIds.get(0)).close();
+        assertEquals(2, day1.references());
+        service.session(sessionIds.get(1)).close();
+        assertEquals(1, day1.references());
+        catalog.release(day1);
+    }
+
+    @Test
+    void testControlValidatesBatch() {
+        List<String> sessionIds = new ArrayList<>(service.createSessions(3, "day1", null, null));
+        sessionIds.add("00000000-0000-0000-0000-000000000000");
+
+        // Nothing is applied if a session is not found or argument is invalid
+        assertThrows(ReplayException.class,
+                () -> service.control(sessionIds, ReplayCommand.START, null));
+        assertThrows(ReplayException.class, () -> service.control(sessionIds.subList(0, 3),
+                ReplayCommand.SPEED, "-1"));
+        assertTrue(sessionIds.subList(0, 3).stream()
+                .noneMatch(sessionId -> service.session(sessionId).isRunning()));
+
+        List<ControlReply> replies =
+                service.control(sessionIds.subList(0, 3), ReplayCommand.START, null);
+        assertEquals(3, replies.size());
+        assertTrue(replies.stream().allMatch(reply -> "OK".equals(reply.status())));
+        assertTrue(sessionIds.subList(0, 3).stream()
+                .allMatch(sessionId -> service.session(sessionId).isRunning()));
+
+        // Session failures are reported per session
+        replies = service.control(sessionIds.subList(0, 3), ReplayCommand.JUMP, "99");
+        assertTrue(replies.stream().allMatch(reply -> "ERROR".equals(reply.status())));
+    }
+
+    @Test
+    void testScheduledGroupStart() throws Exception {
+        List<String> sessionIds = service.createSessions(5, "day1", null, "bench");
+
+        List<ControlReply> replies = service.control(service.group("bench"),
+                ReplayCommand.START, null, System.currentTimeMillis() + 200);
+        assertEquals(5, replies.size());
+        assertTrue(sessionIds.stream()
+                .noneMatch(sessionId -> service.session(sessionId).isRunning()));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline
+                && !sessionIds.stream().allMatch(id -> service.session(id).isRunning()))
+            Thread.sleep(10);
+        assertTrue(sessionIds.stream().allMatch(id -> service.session(id).isRunning()));
+    }
+
+    @Test
+    void testScheduledGroupStartSharesOrigin() throws Exception {
+        // Clock time passes while the batch starts one session after another
+        VirtualReplayClock clock = new VirtualReplayClock() {
+            @Override
+            public Flux<Long> ticks(long periodMillis, long originMillis) {
+                advance(Duration.ofMillis(3));
+                return super.ticks(periodMillis, originMillis);
+            }
+        };
+        ReflectionTestUtils.setField(service, "clock", clock);
+        List<String> sessionIds = service.createSessions(4, "day1", null, "bench");
+        service.control(service.group("bench"), ReplayCommand.START, null,
+                System.currentTimeMillis() + 100);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && clock.tickerCount() < sessionIds.size())
+            Thread.sleep(10);
+        assertEquals(sessionIds.size(), clock.tickerCount());
+
+        // Late sessions catch up - all sessions are at the same replay timestamp
+        clock.advance(Duration.ofMillis(1));
+        List<SessionStats> stats =
+                sessionIds.stream().map(id -> service.session(id).stats()).toList();
+        assertTrue(stats.stream().allMatch(s -> s.replayClockMillis() == 1563197400213L + 13),
+                stats.toString());
+        assertTrue(stats.stream().allMatch(s -> s.position() == 2), stats.toString());
+    }
+
+    @Test
+    void testJournalRestore() {
+        Path journalFile = datasetsDir.resolve("sessions.journal");
+        ReflectionTestUtils.setField(service, "journal", new SessionJournal(journalFile));
+        List<String> sessionIds = service.createSessions(3, "day1", null, null);
+        service.forward(sessionIds.get(0), 2);
+        service.replaySpeed(sessionIds.get(0), 4.0);
+        service.start(sessionIds.get(1));
+        service.session(sessionIds.get(2)).close(); // terminated, journaled as removed
+        service.checkpoint();
+
+        // Restart - sessions are rebuilt from the journal under the same ids
+        ReplayService restarted = newService();
+        ReflectionTestUtils.setField(restarted, "journal", new SessionJournal(journalFile));
+        assertEquals(2, restarted.restore());
+        assertFalse(restarted.isSession(sessionIds.get(2)));
+
+        ReplaySessionImpl forwarded = (ReplaySessionImpl) restarted.session(sessionIds.get(0));
+        assertEquals(2, forwarded.getCurrentIndex());
+        assertEquals(4.0, forwarded.getReplaySpeed());
+
+        // Running session resumes once a subscriber reattaches
+        ReplaySession running = restarted.session(sessionIds.get(1));
+        assertFalse(running.isRunning());
+        running.subscribe();
+        assertTrue(running.isRunning());
+    }
+
+    @Test
+    void testStats() {
+        VirtualReplayClock clock = (VirtualReplayClock) ReflectionTestUtils.getField(service,
+                "clock");
+        List<String> sessionIds = service.createSessions(2, "day1", null, null);
+        List<List<SessionStats>> samples = new ArrayList<>();
+        Disposable subscription = service.stats(1000).subscribe(samples::add);
+        assertEquals(1, samples.size()); // first sample on subscription
+        assertTrue(samples.get(0).stream().allMatch(stats -> "stopped".equals(stats.state())));
+
+        // Subscribed session and a session without subscriber buffering its events
+        List<MarketDataEvent> received = new ArrayList<>();
+        service.subscribe(sessionIds.get(0)).subscribe(received::add);
+        for (String sessionId : sessionIds) {
+            service.replaySpeed(sessionId, 0.05);
+            service.start(sessionId);
+        }
+        clock.advance(Duration.ofMillis(1000));
+        assertEquals(2, samples.size());
+        assertEquals(2, received.size());
+
+        Map<String, SessionStats> sample = samples.get(1).stream()
+                .collect(Collectors.toMap(SessionStats::sessionId, stats -> stats));
+        SessionStats subscribed = sample.get(sessionIds.get(0));
+        assertEquals("running", subscribed.state());
+        assertEquals(2, subscribed.position());
+        assertEquals(3, subscribed.size());
+        assertEquals(2, subscribed.eventsPublished());
+        assertEquals(2.0, subscribed.eventsPerSecond(), 0.01);
+        assertEquals(0, subscribed.bufferDepth());
+        assertEquals(1, subscribed.subscribers());
+        SessionStats unsubscribed = sample.get(sessionIds.get(1));
+        assertEquals(2, unsubscribed.bufferDepth());
+        assertEquals(0, unsubscribed.subscribers());
+
+        subscription.dispose();
+        assertThrows(ReplayException.class, () -> service.stats(0));
+    }
+}
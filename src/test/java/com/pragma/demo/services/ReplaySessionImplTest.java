@@ -5,12 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import com.pragma.demo.models.AnalyticsPoint;
+import com.pragma.demo.models.LatencyReport;
 import com.pragma.demo.models.MarketDataEvent;
+import com.pragma.demo.models.ReplayEnvelope;
 import com.pragma.demo.services.ReplaySessionImpl;
+import com.pragma.demo.services.clock.ReplayClock;
+import com.pragma.demo.services.clock.VirtualReplayClock;
+import com.pragma.demo.services.clock.WallReplayClock;
+import com.pragma.demo.services.data.JacksonCSVReaderService;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -102,6 +116,33 @@ class ReplaySessionImplTest {
                 .verify();
     }
 
+    @Test
+    void testSeek() {
+        replaySession.start();
+        replaySession.seek(1500); // First event at or after 1500 is event ID 2
+
+        Flux<MarketDataEvent> eventFlux = replaySession.subscribe();
+        StepVerifier.create(eventFlux)
+                .expectNext(events.get(1))
+                .expectNext(events.get(2))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testSeekRelative() {
+        replaySession.seek(3000);
+        replaySession.seekRelative(-1000); // Back to event ID 2
+        replaySession.start();
+
+        Flux<MarketDataEvent> eventFlux = replaySession.subscribe();
+        StepVerifier.create(eventFlux)
+                .expectNext(events.get(1))
+                .expectNext(events.get(2))
+                .thenCancel()
+                .verify();
+    }
+
     @Test
     void testReplaySpeed() {
         replaySession.start();         
@@ -125,6 +166,60 @@ class ReplaySessionImplTest {
                 .verify();
     }
 
+    @Test
+    void testSubscribePaced() {
+        Flux<MarketDataEvent> eventFlux = replaySession.subscribePaced();
+        replaySession.start();
+
+        // Second event is due after 1 sec but must be held until there is demand for it
+        StepVerifier.create(eventFlux, 1)
+                .expectNext(events.get(0))
+                .expectNoEvent(Duration.ofMillis(1500))
+                .thenRequest(2)
+                .expectNext(events.get(1))
+                .expectNext(events.get(2))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testResume() {
+        replaySession.start();
+        StepVerifier.create(replaySession.subscribe())
+                .expectNext(events.get(0))
+                .thenCancel()
+                .verify();
+
+        // Reattach after the dropped subscription, continuing after the last received event
+        StepVerifier.create(replaySession.resume(1))
+                .expectNext(events.get(1))
+                .expectNext(events.get(2))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testResumeMultiSymbol() {
+        // Event ids repeat across symbols, so they do not identify a position in the merged stream
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("merged",
+                List.of(new EventStore(events), new EventStore(events)), 100, clock);
+        assertTrue(replaySession.isResumable());
+        assertFalse(session.isResumable());
+        assertThrows(ReplayException.class, () -> session.resume(1));
+
+        // Subscribing again continues from the current position
+        List<MarketDataEvent> received = new ArrayList<>();
+        Disposable first = session.subscribe().subscribe(received::add);
+        session.start();
+        clock.advance(Duration.ofMillis(100));
+        first.dispose();
+        assertEquals(2, received.size());
+        session.subscribe().subscribe(received::add);
+        clock.advance(Duration.ofMillis(2000));
+        assertEquals(6, received.size());
+    }
+
     @Test
     void testNotRunning() {
         replaySession.start();         
@@ -141,6 +236,222 @@ class ReplaySessionImplTest {
         assertFalse(replaySession.isRunning(), "Session should not be running after all events are emitted");
      }
 
+    @Test
+    void testGapCompression() {
+        // Events are 1000ms apart, ~10 ticks each at speed 1. Max gap 0 emits one event per tick
+        replaySession.gapCompression(0);
+        assertEquals(0, replaySession.getMaxGapMillis());
+        replaySession.start();
+
+        Flux<MarketDataEvent> eventFlux = replaySession.subscribe();
+        StepVerifier.create(eventFlux)
+                .expectNext(events.get(0))
+                .expectNext(events.get(1))
+                .expectNext(events.get(2))
+                .expectComplete()
+                .verify(Duration.ofMillis(1000));
+    }
+
+    @Test
+    void testVirtualClock() {
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("virtual", new EventStore(events), 100,
+                clock);
+        List<MarketDataEvent> received = new ArrayList<>();
+        session.subscribe().subscribe(received::add);
+        session.start();
+
+        clock.advance(Duration.ofMillis(100)); // first tick publishes event at replay clock start
+        assertEquals(events.subList(0, 1), received);
+        clock.advance(Duration.ofMillis(900));
+        assertEquals(events.subList(0, 1), received);
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(events.subList(0, 2), received);
+
+        session.stop();
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(events.subList(0, 2), received);
+        assertEquals(0, clock.tickerCount());
+    }
+
+    @Test
+    void testAnalyticsReconnectAndSeek() {
+        List<MarketDataEvent> quotes = List.of(
+                new MarketDataEvent(1, 1000, "NBBO", 100.0, 10, "Q", 100.5, 10, "Q"),
+                new MarketDataEvent(2, 2000, "NBBO", 100.0, 10, "Q", 100.4, 10, "Q"),
+                new MarketDataEvent(3, 3000, "NBBO", 100.0, 10, "Q", 100.3, 10, "Q"),
+                new MarketDataEvent(4, 4000, "NBBO", 100.0, 10, "Q", 100.2, 10, "Q"));
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("analytics", new EventStore(quotes),
+                100, clock);
+        session.subscribe().subscribe();
+        List<AnalyticsPoint> first = new ArrayList<>();
+        Disposable subscription =
+                session.subscribeAnalytics(MarketAnalytics.SPREAD).subscribe(first::add);
+        session.start();
+
+        clock.advance(Duration.ofMillis(100)); // event 1
+        assertEquals(List.of(1), indexes(first));
+
+        // Points published while disconnected are not replayed to the next subscriber
+        subscription.dispose();
+        clock.advance(Duration.ofMillis(1000)); // event 2
+        List<AnalyticsPoint> second = new ArrayList<>();
+        session.subscribeAnalytics(MarketAnalytics.SPREAD).subscribe(second::add);
+        assertTrue(second.isEmpty());
+        clock.advance(Duration.ofMillis(1000)); // event 3
+        assertEquals(List.of(3), indexes(second));
+
+        // Analytics follow the session back to the start
+        session.seek(1000);
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(List.of(3, 1), indexes(second));
+        assertEquals(List.of(1), indexes(first));
+    }
+
+    private static List<Integer> indexes(List<AnalyticsPoint> points) {
+        return points.stream().map(AnalyticsPoint::index).toList();
+    }
+
+    @Test
+    void testLoop() {
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("loop", new EventStore(events), 100,
+                clock);
+        List<MarketDataEvent> received = new ArrayList<>();
+        session.subscribe().subscribe(received::add);
+        session.loop(true, true);
+        session.start();
+
+        clock.advance(Duration.ofMillis(2100)); // whole data, wraps after the last event
+        assertEquals(events, received);
+        assertFalse(session.isTerminated());
+        assertEquals(1, session.loopStatus().loops());
+
+        // Second loop continues on the same subscription, timestamps shifted by the data span
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(4, received.size());
+        assertEquals(1, received.get(3).id());
+        assertEquals(3000, received.get(3).timestamp());
+        clock.advance(Duration.ofMillis(900));
+        assertEquals(5, received.size());
+        assertEquals(4000, received.get(4).timestamp());
+        assertEquals(5, session.loopStatus().eventsPublished());
+        assertEquals(2000, session.loopStatus().timeShiftMillis());
+
+        // Loop off - session terminates at the end of the data
+        session.loop(false, false);
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(6, received.size());
+        assertTrue(session.isTerminated());
+        assertEquals(0, clock.tickerCount());
+    }
+
+    @Test
+    void testEnvelopes() {
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("envelope", new EventStore(events), 100,
+                clock);
+        List<ReplayEnvelope> received = new ArrayList<>();
+        session.subscribeEnvelopes().subscribe(received::add);
+        session.replaySpeed(3.0);
+        long startMicros = clock.nowMicros();
+        session.start();
+
+        clock.advance(Duration.ofMillis(500));
+        assertEquals(events.subList(0, 2), received.stream().map(ReplayEnvelope::event).toList());
+
+        // Replay clock reaches 2200 on the tick at 500 millis. Event 2 (2000) was due 200 market
+        // millis at speed 3 before that
+        ReplayEnvelope envelope = received.get(1);
+        assertEquals(startMicros + 500_000, envelope.emitMicros());
+        assertEquals(envelope.emitMicros() - 66_666, envelope.scheduledMicros());
+        assertEquals(envelope.emitMicros(), envelope.sendMicros());
+
+        List<LatencyReport> latency = session.latency();
+        assertEquals("emit", latency.get(0).stage());
+        assertEquals(2, latency.get(0).count());
+        assertEquals(66_666, latency.get(0).max(), 1_000);
+        assertEquals("send", latency.get(1).stage());
+        assertEquals(0, latency.get(1).max());
+    }
+
+    @Test
+    void testSameReplayOnWallAndVirtualClock() throws Exception {
+        VirtualReplayClock virtual = new VirtualReplayClock(System.currentTimeMillis());
+        List<String> expected = replayScenario(virtual,
+                () -> virtual.advance(Duration.ofSeconds(1)));
+        List<String> actual = replayScenario(new WallReplayClock(), () -> {});
+        assertEquals(3, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    // Replay at speed 10 until complete. Events are recorded with the time they were due at,
+    // relative to the start - it only depends on the tick count, not on how ticks are produced
+    private List<String> replayScenario(ReplayClock clock, Runnable runClock) throws Exception {
+        ReplaySessionImpl session =
+                new ReplaySessionImpl("scenario", new EventStore(events), 10, clock);
+        session.replaySpeed(10.0);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch completed = new CountDownLatch(1);
+        long originMillis = clock.nowMillis();
+        session.subscribeEnvelopes().subscribe(
+                envelope -> received.add(envelope.event().id() + "@"
+                        + (envelope.scheduledMicros() - originMillis * 1000)),
+                error -> {}, completed::countDown);
+        session.start(originMillis);
+
+        runClock.run();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(session.isTerminated());
+        return received;
+    }
+
+    @Test
+    void testVirtualClockFullDataset() throws Exception {
+        List<MarketDataEvent> dataset = new JacksonCSVReaderService()
+                .readMarketDataEvents(new ClassPathResource("marketdata-for-coding-challenge.csv"));
+        long span = dataset.get(dataset.size() - 1).timestamp() - dataset.get(0).timestamp();
+
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session =
+                new ReplaySessionImpl("virtual", new EventStore(dataset), 1, clock);
+        List<MarketDataEvent> received = new ArrayList<>();
+        session.subscribe().subscribe(received::add);
+        session.start();
+
+        // Whole dataset in virtual time, same emission sequence as a real time replay
+        clock.advance(Duration.ofMillis(span + 10));
+        assertTrue(session.isTerminated());
+        assertEquals(dataset, received);
+        assertEquals(0, clock.tickerCount());
+    }
+
+    @Test
+    void testLiveData() {
+        EventStore live = EventStore.open(EventStore.DEFAULT_CHECKPOINT_INTERVAL);
+        live.append(events.subList(0, 1));
+        VirtualReplayClock clock = new VirtualReplayClock();
+        ReplaySessionImpl session = new ReplaySessionImpl("live", live, 100, clock);
+        List<MarketDataEvent> received = new ArrayList<>();
+        session.subscribe().subscribe(received::add);
+        session.start();
+
+        // Caught up - session waits for more data instead of terminating
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(events.subList(0, 1), received);
+        assertFalse(session.isTerminated());
+
+        // Appended events are published on the next tick
+        live.append(events.subList(1, 3));
+        clock.advance(Duration.ofMillis(100));
+        assertEquals(events, received);
+
+        live.close();
+        clock.advance(Duration.ofMillis(100));
+        assertTrue(session.isTerminated());
+    }
+
     @Test
     void testRunning() {
         replaySession.start();
@@ -0,0 +1,73 @@
+package com.pragma.demo.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.pragma.demo.models.SessionCheckpoint;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private SessionJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        file = dir.resolve("sessions.journal");
+        journal = new SessionJournal(file);
+    }
+
+    private static SessionCheckpoint checkpoint(String sessionId, int position) {
+        return new SessionCheckpoint(sessionId, "day1", List.of("AAPL"), position, 1000.5, 2.0, -1,
+                true, false, false, 0, 0, position, false);
+    }
+
+    @Test
+    void testRead() {
+        assertTrue(journal.read().isEmpty()); // journal does not exist yet
+
+        journal.append(List.of(checkpoint("s1", 1), checkpoint("s2", 1)));
+        journal.append(List.of(checkpoint("s1", 5), SessionCheckpoint.removed("s2")));
+        journal.close();
+
+        // Latest record wins, removed sessions are dropped
+        Map<String, SessionCheckpoint> sessions = new SessionJournal(file).read();
+        assertEquals(Map.of("s1", checkpoint("s1", 5)), sessions);
+    }
+
+    @Test
+    void testTornRecord() throws Exception {
+        journal.append(List.of(checkpoint("s1", 1), checkpoint("s2", 1)));
+        Files.writeString(file, "{\"sessionId\":\"s3\",\"data", StandardOpenOption.APPEND);
+
+        Map<String, SessionCheckpoint> sessions = journal.read();
+        assertEquals(List.of("s1", "s2"), List.copyOf(sessions.keySet()));
+        assertEquals(2, journal.records());
+    }
+
+    @Test
+    void testCompact() throws Exception {
+        for (int i = 0; i < 10; i++)
+            journal.append(List.of(checkpoint("s1", i)));
+        assertEquals(10, journal.records());
+
+        journal.compact(List.of(checkpoint("s1", 9)));
+        assertEquals(1, journal.records());
+        assertEquals(1, Files.readAllLines(file).size());
+
+        // Appends continue on the compacted journal
+        journal.append(List.of(checkpoint("s2", 3)));
+        assertEquals(2, journal.read().size());
+        assertEquals(2, journal.records());
+    }
+}
@@ -0,0 +1,62 @@
+package com.pragma.demo.services.data;
+
+import org.junit.jupiter.api.Test;
+import com.pragma.demo.models.MarketDataEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CSVStreamParserTest {
+
+    private static final String CSV =
+            "\uFEFFId,Timestamp,Event,Price1,Shares1,Xchg1,Price2,Shares2,Xchg2\r\n"
+                    + "1,1563197400213,Bid,142.75,300,Q,,,\r\n"
+                    + "2,1563197400213,NBBO,142.75,400,S,143.19,200,S\r\n"
+                    + "3,1563197400315,Trade,142.90,100,Q,,,";
+
+    @Test
+    void testChunked() {
+        byte[] data = CSV.getBytes(StandardCharsets.UTF_8);
+
+        // Every chunk size splits lines (and the BOM) differently, results must not change
+        for (int chunkSize = 1; chunkSize <= data.length; chunkSize++) {
+            CSVStreamParser parser = new CSVStreamParser("test");
+            List<MarketDataEvent> events = new ArrayList<>();
+            for (int i = 0; i < data.length; i += chunkSize) {
+                int n = Math.min(chunkSize, data.length - i);
+                events.addAll(parser.feed(ByteBuffer.wrap(data, i, n)));
+            }
+            events.addAll(parser.finish()); // trailing line has no line terminator
+
+            assertTrue(parser.hasHeader());
+            assertEquals(3, parser.rows());
+            assertEquals(0, parser.skippedRows());
+            assertEquals(3, events.size());
+            assertEquals(1, events.get(0).id());
+            assertEquals(143.19, events.get(1).price2());
+            assertEquals(1563197400315L, events.get(2).timestamp());
+            assertEquals("Trade", events.get(2).event());
+        }
+    }
+
+    @Test
+    void testSkipBadRows() {
+        CSVStreamParser parser = new CSVStreamParser("test");
+        List<MarketDataEvent> events = new ArrayList<>(parser.feed(ByteBuffer.wrap((
+                "Id,Timestamp,Event,Price1,Shares1,Xchg1,Price2,Shares2,Xchg2\n"
+                        + "1,1563197400213,Bid,142.75,300,Q,,,\n"
+                        + "2,not-a-timestamp,Bid,142.75,300,Q,,,\n"
+                        + "3,1563197400100,Bid,142.75,300,Q,,,\n" // out of order
+                        + "4,1563197400300,Ask,143.00,100,Q,,,\n")
+                .getBytes(StandardCharsets.UTF_8))));
+        events.addAll(parser.finish());
+
+        assertEquals(2, parser.rows());
+        assertEquals(2, parser.skippedRows());
+        assertEquals(List.of(1, 4), events.stream().map(MarketDataEvent::id).toList());
+    }
+}